@@ -0,0 +1,129 @@
+package io.github.thecsdev.betterstats.network;
+
+import java.util.Random;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.PacketByteBuf;
+
+/**
+ * A standalone benchmark that measures the CPU time {@link BSPayloadCompression} takes to
+ * compress {@link BetterStatsNetworkHandler#S2C_STATS} payload bodies, against the bytes it saves,
+ * for synthetic profiles of different sizes. Used for tuning {@link BetterStatsNetworkHandler#COMPRESSION_THRESHOLD}.<br/>
+ * <br/>
+ * The bodies are laid out the same way {@link BSStatsCodec#writeStats(PacketByteBuf, it.unimi.dsi.fastutil.objects.Object2IntMap)}
+ * and {@link BSStatsCodec#writeLegacyStats(PacketByteBuf, it.unimi.dsi.fastutil.objects.Object2IntMap)} lay them out,
+ * but are made out of random raw IDs and values, so that Minecraft doesn't have to be bootstrapped.
+ * The random seed is fixed, so the results can be reproduced.<br/>
+ * <br/>
+ * Run it using {@code ./gradlew benchmarkCompression}.
+ */
+public final class BSPayloadCompressionBenchmark
+{
+	// ==================================================
+	private BSPayloadCompressionBenchmark() {}
+	// --------------------------------------------------
+	private static final int[] PROFILE_SIZES = { 1000, 5000, 20000 };
+	private static final int STAT_TYPES = 9; //mined, crafted, used, broken, picked up, dropped, killed, killed by, custom
+	private static final int WARMUP_ITERATIONS = 200, ITERATIONS = 1000;
+	// ==================================================
+	public static void main(String[] args)
+	{
+		System.out.println(String.format("%-8s %-8s %12s %12s %8s %12s %12s",
+				"format", "stats", "body bytes", "compressed", "ratio", "us/compress", "us/read"));
+		for(int size : PROFILE_SIZES)
+		{
+			run("compact", size, writeCompactBody(size));
+			run("legacy", size, writeLegacyBody(size));
+		}
+	}
+	
+	private static void run(String format, int statCount, byte[] body)
+	{
+		//warm up, so the JIT compiles the code being measured
+		for(int i = 0; i < WARMUP_ITERATIONS; i++)
+			BSPayloadCompression.readBody(compress(body)).release();
+		
+		//measure the compression and decompression separately
+		long compressNanos = 0, readNanos = 0;
+		int compressedLength = 0;
+		for(int i = 0; i < ITERATIONS; i++)
+		{
+			long start = System.nanoTime();
+			final var compressed = compress(body);
+			compressNanos += System.nanoTime() - start;
+			compressedLength = compressed.readableBytes() - 1; //minus the flag
+			
+			start = System.nanoTime();
+			BSPayloadCompression.readBody(compressed).release();
+			readNanos += System.nanoTime() - start;
+		}
+		
+		System.out.println(String.format("%-8s %-8d %12d %12d %7.1f%% %12.1f %12.1f",
+				format, statCount, body.length, compressedLength, (compressedLength * 100.0) / body.length,
+				(compressNanos / 1000.0) / ITERATIONS, (readNanos / 1000.0) / ITERATIONS));
+	}
+	
+	private static PacketByteBuf compress(byte[] body)
+	{
+		final var pbb = new PacketByteBuf(Unpooled.buffer(body.length + 1));
+		final int flagIndex = BSPayloadCompression.reserveBodyFlag(pbb);
+		pbb.writeBytes(body);
+		return BSPayloadCompression.compressBody(pbb, flagIndex, 0);
+	}
+	// --------------------------------------------------
+	/**
+	 * Writes a body using the {@link BSStatsCodec#writeStats(PacketByteBuf, it.unimi.dsi.fastutil.objects.Object2IntMap)} layout.
+	 */
+	private static byte[] writeCompactBody(int statCount)
+	{
+		final var random = new Random(statCount);
+		final var pbb = new PacketByteBuf(Unpooled.buffer());
+		pbb.writeVarInt(STAT_TYPES);
+		for(int type = 0; type < STAT_TYPES; type++)
+		{
+			final int entryCount = (statCount / STAT_TYPES) + (type < (statCount % STAT_TYPES) ? 1 : 0);
+			pbb.writeVarInt(type);
+			pbb.writeVarInt(entryCount);
+			for(int e = 0; e < entryCount; e++)
+			{
+				pbb.writeVarInt(1 + random.nextInt(4)); //raw ID delta
+				pbb.writeVarInt(nextValue(random));
+			}
+		}
+		return toBytes(pbb);
+	}
+	
+	/**
+	 * Writes a body using the {@link BSStatsCodec#writeLegacyStats(PacketByteBuf, it.unimi.dsi.fastutil.objects.Object2IntMap)} layout.
+	 */
+	private static byte[] writeLegacyBody(int statCount)
+	{
+		final var random = new Random(statCount);
+		final var pbb = new PacketByteBuf(Unpooled.buffer());
+		pbb.writeVarInt(statCount);
+		for(int i = 0; i < statCount; i++)
+		{
+			pbb.writeVarInt(random.nextInt(STAT_TYPES));
+			pbb.writeVarInt(random.nextInt(statCount * 2));
+			pbb.writeVarInt(nextValue(random));
+		}
+		return toBytes(pbb);
+	}
+	
+	/**
+	 * Returns a random stat value. Most stats are small counters, and a few (such as distances and times) are large.
+	 */
+	private static int nextValue(Random random)
+	{
+		return (random.nextInt(10) == 0) ? random.nextInt(10000000) : 1 + random.nextInt(64);
+	}
+	
+	private static byte[] toBytes(PacketByteBuf pbb)
+	{
+		final byte[] bytes = new byte[pbb.readableBytes()];
+		pbb.readBytes(bytes);
+		pbb.release();
+		return bytes;
+	}
+	// ==================================================
+}
\ No newline at end of file
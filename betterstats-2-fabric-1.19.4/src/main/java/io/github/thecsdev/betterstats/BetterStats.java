@@ -5,11 +5,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler;
+import io.github.thecsdev.betterstats.util.ItemGroupIndex;
 import net.fabricmc.loader.api.FabricLoader;
 import net.fabricmc.loader.api.ModContainer;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemGroup;
-import net.minecraft.item.ItemGroups;
 
 public class BetterStats extends Object
 {
@@ -61,24 +61,11 @@ public class BetterStats extends Object
 	private static boolean isServer(BetterStats arg0) { return arg0 instanceof io.github.thecsdev.betterstats.server.BetterStatsServer; }
 	private static boolean isClient(BetterStats arg0) { return arg0 instanceof io.github.thecsdev.betterstats.client.BetterStatsClient; }
 	// ==================================================
-	public static @Nullable ItemGroup getItemGroup(Item item)
-	{
-		//null check
-		if(item == null) return null;
-		//iterate all currently defined item groups,
-		//look for a group that contains the said item
-		for(ItemGroup group : ItemGroups.getGroups())
-		{
-			//ignore the search group, as it is used for the
-			//creative menu item search tab
-			if(group == ItemGroups.SEARCH) continue;
-			//map out all items in the current group
-			var items = group.getDisplayStacks().stream().map(stack -> stack.getItem()).toList();
-			//check if the current group has the given item
-			if(items.contains(item)) return group;
-		}
-		//default outcome: un-grouped
-		return null;
-	}
+	/**
+	 * Returns the {@link ItemGroup} a given {@link Item} belongs to,
+	 * or null if the {@link Item} is un-grouped.
+	 * @see ItemGroupIndex#getItemGroup(Item)
+	 */
+	public static @Nullable ItemGroup getItemGroup(Item item) { return ItemGroupIndex.getItemGroup(item); }
 	// ==================================================
 }
\ No newline at end of file
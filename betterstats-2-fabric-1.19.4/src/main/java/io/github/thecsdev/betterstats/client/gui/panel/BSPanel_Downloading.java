@@ -43,7 +43,7 @@ public class BSPanel_Downloading extends BSPanel
 		var btn_cancel = new TButtonWidget((getTpeWidth() / 2) - 50, getTpeHeight() - 30, 100, 20, null, null);
 		btn_cancel.setDrawsVanillaButton(true);
 		btn_cancel.setMessage(translatable("gui.cancel"));
-		btn_cancel.setOnClick(btn -> getClient().setScreen(bss.parent));
+		btn_cancel.setOnClick(btn -> { bss.cancelStatsRequest(); getClient().setScreen(bss.parent); });
 		addTChild(btn_cancel, false);
 	}
 	// ==================================================
@@ -52,6 +52,12 @@ public class BSPanel_Downloading extends BSPanel
 		txt_downloading.setColor(Color.YELLOW.getRGB(), Color.YELLOW.getRGB());
 		txt_downloading.setText(fTranslatable("multiplayer.downloadingStats"));
 	}
+	public void onProgress(int receivedBytes, int totalBytes)
+	{
+		int percent = (totalBytes > 0) ? (int)((receivedBytes * 100L) / totalBytes) : 0;
+		txt_downloading.setColor(Color.YELLOW.getRGB(), Color.YELLOW.getRGB());
+		txt_downloading.setText(fTranslatable("betterstats.gui.network.stats_request.progress", percent));
+	}
 	public void onTimedOut()
 	{
 		txt_downloading.setColor(Color.RED.getRGB(), Color.RED.getRGB());
@@ -9,6 +9,7 @@ import io.github.thecsdev.betterstats.client.gui.panel.BSPanel;
 import io.github.thecsdev.betterstats.client.gui.screen.BetterStatsScreen;
 import io.github.thecsdev.betterstats.client.gui.screen.BetterStatsScreen.GroupStatsBy;
 import io.github.thecsdev.betterstats.client.gui.widget.BSScrollBarWidget;
+import io.github.thecsdev.betterstats.util.StatSnapshot;
 import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsStat;
 import io.github.thecsdev.tcdcommons.api.client.gui.TElement;
 import io.github.thecsdev.tcdcommons.api.client.gui.other.TLabelElement;
@@ -110,6 +111,18 @@ public abstract class BSStatPanel extends BSPanel
 	 * @param statFilter The {@link Predicate} that filters out certain stats.
 	 */
 	public abstract void init(BetterStatsScreen bss, StatHandler statHandler, Predicate<StatUtilsStat> statFilter);
+	
+	/**
+	 * Returns the {@link StatSnapshot} for a given {@link StatHandler}.<br/>
+	 * If the {@link StatHandler} is the one shown by the {@link BetterStatsScreen},
+	 * the screen's cached {@link StatSnapshot} is used instead of creating a new one.
+	 */
+	protected static StatSnapshot getStatSnapshot(BetterStatsScreen bss, StatHandler statHandler)
+	{
+		if(bss != null && bss.getStatHandler() == statHandler)
+			return bss.getStatSnapshot();
+		return new StatSnapshot(statHandler);
+	}
 	// --------------------------------------------------
 	/**
 	 * Initializes a statistics group label.
@@ -159,6 +172,14 @@ public abstract class BSStatPanel extends BSPanel
 	 * Use {@link Predicate#and(Predicate)} to merge two predicates.
 	 */
 	public Predicate<StatUtilsStat> getStatPredicate() { return stat -> true; }
+	
+	/**
+	 * Returns true if this {@link BSStatPanel} shows empty stats.<br/>
+	 * When false, empty stats are skipped before they even reach the stat
+	 * filter, which is a lot faster for players that don't have many stats.
+	 * @see BetterStatsScreen#filter_showEmpty
+	 */
+	public boolean getIncludeEmptyStats() { return BetterStatsScreen.filter_showEmpty; }
 	// ==================================================
 	//do not render any backgrounds or anything
 	@Override
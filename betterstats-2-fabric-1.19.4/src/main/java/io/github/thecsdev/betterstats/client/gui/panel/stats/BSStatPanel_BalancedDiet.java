@@ -32,6 +32,9 @@ public class BSStatPanel_BalancedDiet extends BSStatPanel_Items
 		//make sure the item stat is for a food item
 		return stat -> (stat instanceof StatUtilsItemStat) && ((StatUtilsItemStat)stat).item.isFood();
 	}
+	
+	//all food items are shown, even the ones that were never eaten
+	public @Override boolean getIncludeEmptyStats() { return true; }
 	// ==================================================
 	protected @Override BSStatWidget_Item createStatWidget(StatUtilsItemStat stat, int x, int y)
 	{
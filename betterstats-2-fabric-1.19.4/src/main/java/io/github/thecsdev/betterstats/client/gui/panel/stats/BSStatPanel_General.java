@@ -5,7 +5,6 @@ import static io.github.thecsdev.tcdcommons.api.hooks.TCommonHooks.getBiomeAcces
 import static io.github.thecsdev.tcdcommons.api.util.TextUtils.literal;
 import static io.github.thecsdev.tcdcommons.api.util.TextUtils.translatable;
 
-import java.util.Collections;
 import java.util.function.Predicate;
 
 import org.apache.commons.lang3.StringUtils;
@@ -18,6 +17,7 @@ import io.github.thecsdev.tcdcommons.api.client.gui.panel.TPanelElement;
 import io.github.thecsdev.tcdcommons.api.client.gui.util.HorizontalAlignment;
 import io.github.thecsdev.tcdcommons.api.client.gui.widget.TSelectEnumWidget;
 import io.github.thecsdev.tcdcommons.api.client.gui.widget.TSelectWidget;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.stat.StatHandler;
 import net.minecraft.text.MutableText;
@@ -69,20 +69,22 @@ public class BSStatPanel_General extends BSStatPanel
 		// ---------- init general stats
 			this.init_groupLabel(translatable("entity.minecraft.player"));
 		}
-		//first, obtain all stats
+		//first, obtain all stats (they are already sorted alphabetically)
 		var stats = StatUtils.getGeneralStats(statHandler, statFilter.and(getStatPredicate()));
-		//then sort the stats
+		//then sort the stats, by sorting their indexes
+		final int[] order = new int[stats.size()];
+		for(int i = 0; i < order.length; i++) order[i] = i;
 		switch(bss.cache.getAs("BSStatPanelGeneral_SortBy", BSStatPanelGeneral_SortBy.class, BSStatPanelGeneral_SortBy.Default))
 		{
-			case Reverse: Collections.reverse(stats); break;
+			case Reverse: IntArrays.reverse(order); break;
 			case Incremental:
-				Collections.sort(stats, (o1, o2) -> Integer.compare(o1.intValue, o2.intValue)); break;
+				IntArrays.mergeSort(order, (a, b) -> Integer.compare(stats.get(a).intValue, stats.get(b).intValue)); break;
 			case Decremental:
-				Collections.sort(stats, (o1, o2) -> Integer.compare(o2.intValue, o1.intValue)); break;
+				IntArrays.mergeSort(order, (a, b) -> Integer.compare(stats.get(b).intValue, stats.get(a).intValue)); break;
 			default: break;
 		}
 		//iterate all stats and create widgets
-		for(StatUtilsGeneralStat stat : stats) new BSStatWidget_General(stat, statHeight);
+		for(int index : order) new BSStatWidget_General(stats.get(index), statHeight);
 		//if there are no stats...
 		if(stats.size() == 0) init_noResults();
 	}
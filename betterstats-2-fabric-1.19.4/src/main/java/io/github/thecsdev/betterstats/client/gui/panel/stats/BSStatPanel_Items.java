@@ -5,8 +5,8 @@ import static io.github.thecsdev.tcdcommons.api.util.TextUtils.literal;
 import static io.github.thecsdev.tcdcommons.api.util.TextUtils.translatable;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.function.Predicate;
 
 import com.google.common.collect.Lists;
@@ -17,6 +17,7 @@ import io.github.thecsdev.betterstats.client.gui.screen.BetterStatsScreen;
 import io.github.thecsdev.betterstats.client.gui_hud.screen.BetterStatsHudScreen;
 import io.github.thecsdev.betterstats.client.gui_hud.widget.BSHudStatWidget_Item;
 import io.github.thecsdev.betterstats.util.ItemStatEnum;
+import io.github.thecsdev.betterstats.util.StatAggregate;
 import io.github.thecsdev.betterstats.util.StatUtils;
 import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsItemStat;
 import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsStat;
@@ -88,17 +89,17 @@ public class BSStatPanel_Items extends BSStatPanel
 	protected void initByNoGroups(BetterStatsScreen bss, StatHandler statHandler, Predicate<StatUtilsStat> statFilter)
 	{
 		//get stats
-		var itemStats = StatUtils.getItemStatsByMods(statHandler, statFilter.and(getStatPredicate()));
+		var itemStats = StatUtils.getItemStatsByMods(getStatSnapshot(bss, statHandler), statFilter.and(getStatPredicate()), getIncludeEmptyStats());
 		ArrayList<StatUtilsItemStat> allItems = Lists.newArrayList();
 		//merge stats
-		for(String iGroup : itemStats.keySet())
-			allItems.addAll(itemStats.get(iGroup));
+		for(String iGroup : itemStats.getGroups())
+			allItems.addAll(itemStats.getStats(iGroup));
 		//init all
-		if(itemStats.size() > 0)
+		if(!itemStats.isEmpty())
 		{
 			init_groupLabel(literal("*"));
 			init_itemStats(bss, allItems);
-			init_totalStats(itemStats.values());
+			init_totalStats(itemStats);
 		}
 		//if there are no stats...
 		else init_noResults();
@@ -106,29 +107,29 @@ public class BSStatPanel_Items extends BSStatPanel
 	
 	protected void initByItemGroups(BetterStatsScreen bss, StatHandler statHandler, Predicate<StatUtilsStat> statFilter)
 	{
-		var itemStats = StatUtils.getItemStats(statHandler, statFilter.and(getStatPredicate()));
-		for(ItemGroup iGroup : itemStats.keySet())
+		var itemStats = StatUtils.getItemStats(getStatSnapshot(bss, statHandler), statFilter.and(getStatPredicate()), getIncludeEmptyStats());
+		for(ItemGroup iGroup : itemStats.getGroups())
 		{
 			Text gLabel = iGroup != null ? iGroup.getDisplayName() : null;
-			init_groupLabel(gLabel);
-			init_itemStats(bss, itemStats.get(iGroup));
+			init_groupLabel(gLabel).setTooltip(createGroupTooltip(itemStats, iGroup));
+			init_itemStats(bss, Lists.newArrayList(itemStats.getStats(iGroup)));
 		}
 		//if there are no stats...
-		if(itemStats.size() == 0) init_noResults();
-		else init_totalStats(itemStats.values());
+		if(itemStats.isEmpty()) init_noResults();
+		else init_totalStats(itemStats);
 	}
 	
 	protected void initByModGroups(BetterStatsScreen bss, StatHandler statHandler, Predicate<StatUtilsStat> statFilter)
 	{
-		var itemStats = StatUtils.getItemStatsByMods(statHandler, statFilter.and(getStatPredicate()));
-		for(String iGroup : itemStats.keySet())
+		var itemStats = StatUtils.getItemStatsByMods(getStatSnapshot(bss, statHandler), statFilter.and(getStatPredicate()), getIncludeEmptyStats());
+		for(String iGroup : itemStats.getGroups())
 		{
-			init_groupLabel(literal(getModName(iGroup)));
-			init_itemStats(bss, itemStats.get(iGroup));
+			init_groupLabel(literal(getModName(iGroup))).setTooltip(createGroupTooltip(itemStats, iGroup));
+			init_itemStats(bss, Lists.newArrayList(itemStats.getStats(iGroup)));
 		}
 		//if there are no stats...
-		if(itemStats.size() == 0) init_noResults();
-		else init_totalStats(itemStats.values());
+		if(itemStats.isEmpty()) init_noResults();
+		else init_totalStats(itemStats);
 	}
 	// --------------------------------------------------
 	protected void init_itemStats(BetterStatsScreen bss, ArrayList<StatUtilsItemStat> itemStats)
@@ -142,7 +143,11 @@ public class BSStatPanel_Items extends BSStatPanel
 			case Dropped: Collections.sort(itemStats, (o1, o2) -> Integer.compare(o2.sDropped, o1.sDropped)); break;
 			case Used: Collections.sort(itemStats, (o1, o2) -> Integer.compare(o2.sUsed, o1.sUsed)); break;
 			case Broken: Collections.sort(itemStats, (o1, o2) -> Integer.compare(o2.sBroken, o1.sBroken)); break;
-			default: break;
+			default:
+				//when searching, the best matches go first
+				var searchResult = bss.getSearchResult();
+				if(searchResult != null) itemStats.sort(Comparator.comparingInt(searchResult::getRank));
+				break;
 		}
 		
 		//declare the starting XY
@@ -171,29 +176,15 @@ public class BSStatPanel_Items extends BSStatPanel
 		}
 	}
 	
-	protected void init_totalStats(Collection<ArrayList<StatUtilsItemStat>> itemStats)
+	protected void init_totalStats(StatAggregate<?, StatUtilsItemStat> itemStats)
 	{
-		//define totals
-		int tMined = 0, tCrafted = 0, tUsed = 0 , tBroken = 0, tPickedUp = 0, tDropped = 0;
-		
-		//iterate all stats
-		for(var group : itemStats)
-		{
-			//and count the kills and deaths
-			for(var groupMob : group)
-			{
-				//ignore empty stats
-				if(groupMob == null || groupMob.isEmpty())
-					continue;
-				//count
-				tMined += groupMob.sMined;
-				tCrafted += groupMob.sCrafted;
-				tUsed += groupMob.sUsed;
-				tBroken += groupMob.sBroken;
-				tPickedUp += groupMob.sPickedUp;
-				tDropped += groupMob.sDropped;
-			}
-		}
+		//obtain the totals, which were summed up while the stats were gathered
+		long tMined = itemStats.getTotal(ItemStatEnum.MINED.ordinal());
+		long tCrafted = itemStats.getTotal(ItemStatEnum.CRAFTED.ordinal());
+		long tUsed = itemStats.getTotal(ItemStatEnum.USED.ordinal());
+		long tBroken = itemStats.getTotal(ItemStatEnum.BROKEN.ordinal());
+		long tPickedUp = itemStats.getTotal(ItemStatEnum.PICKED_UP.ordinal());
+		long tDropped = itemStats.getTotal(ItemStatEnum.DROPPED.ordinal());
 		
 		//init a new group
 		var glSb = new StringBuilder();
@@ -221,38 +212,52 @@ public class BSStatPanel_Items extends BSStatPanel
 		int rightX = (panel.getTpeWidth() / 2) + 5, rightW = (panel.getTpeWidth() / 2) - 10;
 		
 		var lbl_tMined_a = new TLabelElement(leftX, 0, leftW, 20, ItemStatEnum.MINED.getIText());
-		var lbl_tMined_b = new TLabelElement(leftX, 0, leftW, 20, literal(Integer.toString(tMined)));
+		var lbl_tMined_b = new TLabelElement(leftX, 0, leftW, 20, literal(Long.toString(tMined)));
 		lbl_tMined_b.setHorizontalAlignment(HorizontalAlignment.RIGHT);
 		panel.addTChild(lbl_tMined_a, true);
 		panel.addTChild(lbl_tMined_b, true);
 		var lbl_tCrafted_a = new TLabelElement(rightX, 0, rightW, 20, ItemStatEnum.CRAFTED.getIText());
-		var lbl_tCrafted_b = new TLabelElement(rightX, 0, rightW, 20, literal(Integer.toString(tCrafted)));
+		var lbl_tCrafted_b = new TLabelElement(rightX, 0, rightW, 20, literal(Long.toString(tCrafted)));
 		lbl_tCrafted_b.setHorizontalAlignment(HorizontalAlignment.RIGHT);
 		panel.addTChild(lbl_tCrafted_a, true);
 		panel.addTChild(lbl_tCrafted_b, true);
 		
 		var lbl_tUsed_a = new TLabelElement(leftX, 20, leftW, 20, ItemStatEnum.USED.getIText());
-		var lbl_tUsed_b = new TLabelElement(leftX, 20, leftW, 20, literal(Integer.toString(tUsed)));
+		var lbl_tUsed_b = new TLabelElement(leftX, 20, leftW, 20, literal(Long.toString(tUsed)));
 		lbl_tUsed_b.setHorizontalAlignment(HorizontalAlignment.RIGHT);
 		panel.addTChild(lbl_tUsed_a, true);
 		panel.addTChild(lbl_tUsed_b, true);
 		var lbl_tBroken_a = new TLabelElement(rightX, 20, rightW, 20, ItemStatEnum.BROKEN.getIText());
-		var lbl_tBroken_b = new TLabelElement(rightX, 20, rightW, 20, literal(Integer.toString(tBroken)));
+		var lbl_tBroken_b = new TLabelElement(rightX, 20, rightW, 20, literal(Long.toString(tBroken)));
 		lbl_tBroken_b.setHorizontalAlignment(HorizontalAlignment.RIGHT);
 		panel.addTChild(lbl_tBroken_a, true);
 		panel.addTChild(lbl_tBroken_b, true);
 		
 		var lbl_tPickedUp_a = new TLabelElement(leftX, 40, leftW, 20, ItemStatEnum.PICKED_UP.getIText());
-		var lbl_tPickedUp_b = new TLabelElement(leftX, 40, leftW, 20, literal(Integer.toString(tPickedUp)));
+		var lbl_tPickedUp_b = new TLabelElement(leftX, 40, leftW, 20, literal(Long.toString(tPickedUp)));
 		lbl_tPickedUp_b.setHorizontalAlignment(HorizontalAlignment.RIGHT);
 		panel.addTChild(lbl_tPickedUp_a, true);
 		panel.addTChild(lbl_tPickedUp_b, true);
 		var lbl_tDropped_a = new TLabelElement(rightX, 40, rightW, 20, ItemStatEnum.DROPPED.getIText());
-		var lbl_tDropped_b = new TLabelElement(rightX, 40, rightW, 20, literal(Integer.toString(tDropped)));
+		var lbl_tDropped_b = new TLabelElement(rightX, 40, rightW, 20, literal(Long.toString(tDropped)));
 		lbl_tDropped_b.setHorizontalAlignment(HorizontalAlignment.RIGHT);
 		panel.addTChild(lbl_tDropped_a, true);
 		panel.addTChild(lbl_tDropped_b, true);
 	}
+	
+	/**
+	 * Creates the tooltip for a group label, showing the subtotals of that group.
+	 */
+	protected <K> Text createGroupTooltip(StatAggregate<K, StatUtilsItemStat> itemStats, K group)
+	{
+		var sb = new StringBuilder();
+		for(ItemStatEnum statType : ItemStatEnum.values())
+		{
+			if(sb.length() > 0) sb.append("\n");
+			sb.append(statType.getIText().getString() + " - " + itemStats.getGroupTotal(group, statType.ordinal()));
+		}
+		return literal(sb.toString());
+	}
 	// ==================================================
 	protected BSStatWidget_Item createStatWidget(StatUtilsItemStat stat, int x, int y)
 	{
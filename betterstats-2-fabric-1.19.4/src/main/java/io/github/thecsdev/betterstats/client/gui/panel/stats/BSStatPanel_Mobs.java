@@ -5,8 +5,8 @@ import static io.github.thecsdev.tcdcommons.api.util.TextUtils.literal;
 import static io.github.thecsdev.tcdcommons.api.util.TextUtils.translatable;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Objects;
 import java.util.function.Predicate;
 
@@ -17,6 +17,7 @@ import io.github.thecsdev.betterstats.client.gui.panel.BSPanel;
 import io.github.thecsdev.betterstats.client.gui.screen.BetterStatsScreen;
 import io.github.thecsdev.betterstats.client.gui_hud.screen.BetterStatsHudScreen;
 import io.github.thecsdev.betterstats.client.gui_hud.widget.BSHudStatWidget_Entity;
+import io.github.thecsdev.betterstats.util.StatAggregate;
 import io.github.thecsdev.betterstats.util.StatUtils;
 import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsMobStat;
 import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsStat;
@@ -33,6 +34,7 @@ import net.minecraft.entity.LivingEntity;
 import net.minecraft.registry.Registries;
 import net.minecraft.stat.StatHandler;
 import net.minecraft.text.MutableText;
+import net.minecraft.text.Text;
 
 public class BSStatPanel_Mobs extends BSStatPanel
 {
@@ -97,17 +99,17 @@ public class BSStatPanel_Mobs extends BSStatPanel
 	protected void initByNoGroups(BetterStatsScreen bss, StatHandler statHandler, Predicate<StatUtilsStat> statFilter)
 	{
 		//get mob stats
-		var mobStats = StatUtils.getMobStats(statHandler, statFilter.and(getStatPredicate()));
+		var mobStats = StatUtils.getMobStats(getStatSnapshot(bss, statHandler), statFilter.and(getStatPredicate()), getIncludeEmptyStats());
 		ArrayList<StatUtilsMobStat> allMobs = Lists.newArrayList();
 		//merge mob stats
-		for(var mobGroup : mobStats.keySet())
-			allMobs.addAll(mobStats.get(mobGroup));
+		for(var mobGroup : mobStats.getGroups())
+			allMobs.addAll(mobStats.getStats(mobGroup));
 		//init
-		if(mobStats.size() > 0)
+		if(!mobStats.isEmpty())
 		{
 			init_groupLabel(literal("*"));
 			init_mobStats(bss, allMobs);
-			init_totalStats(mobStats.values());
+			init_totalStats(mobStats);
 		}
 		//if there are no stats...
 		else init_noResults();
@@ -115,16 +117,16 @@ public class BSStatPanel_Mobs extends BSStatPanel
 	
 	protected void initByModGroups(BetterStatsScreen bss, StatHandler statHandler, Predicate<StatUtilsStat> statFilter)
 	{
-		var mobStats = StatUtils.getMobStats(statHandler, statFilter.and(getStatPredicate()));
-		for(var mobGroup : mobStats.keySet())
+		var mobStats = StatUtils.getMobStats(getStatSnapshot(bss, statHandler), statFilter.and(getStatPredicate()), getIncludeEmptyStats());
+		for(var mobGroup : mobStats.getGroups())
 		{
-			init_groupLabel(literal(getModName(mobGroup)));
-			init_mobStats(bss, mobStats.get(mobGroup));
+			init_groupLabel(literal(getModName(mobGroup))).setTooltip(createGroupTooltip(mobStats, mobGroup));
+			init_mobStats(bss, Lists.newArrayList(mobStats.getStats(mobGroup)));
 		}
 		//if there are no stats...
-		if(mobStats.size() == 0) init_noResults();
+		if(mobStats.isEmpty()) init_noResults();
 		//else init total stats as well
-		else init_totalStats(mobStats.values());
+		else init_totalStats(mobStats);
 	}
 	// --------------------------------------------------
 	protected void init_mobStats(BetterStatsScreen bss, ArrayList<StatUtilsMobStat> mobStats)
@@ -134,7 +136,11 @@ public class BSStatPanel_Mobs extends BSStatPanel
 		{
 			case Kills: Collections.sort(mobStats, (o1, o2) -> Integer.compare(o2.killed, o1.killed)); break;
 			case Deaths: Collections.sort(mobStats, (o1, o2) -> Integer.compare(o2.killedBy, o1.killedBy)); break;
-			default: break;
+			default:
+				//when searching, the best matches go first
+				var searchResult = bss.getSearchResult();
+				if(searchResult != null) mobStats.sort(Comparator.comparingInt(searchResult::getRank));
+				break;
 		}
 		
 		//declare the starting XY
@@ -164,25 +170,11 @@ public class BSStatPanel_Mobs extends BSStatPanel
 		}
 	}
 	
-	protected void init_totalStats(Collection<ArrayList<StatUtilsMobStat>> mobStats)
+	protected void init_totalStats(StatAggregate<?, StatUtilsMobStat> mobStats)
 	{
-		//define KD
-		int kills = 0, deaths = 0;
-		
-		//iterate all stats
-		for(var group : mobStats)
-		{
-			//and count the kills and deaths
-			for(var groupItem : group)
-			{
-				//ignore empty stats
-				if(groupItem == null || groupItem.isEmpty())
-					continue;
-				//count
-				kills += groupItem.killed;
-				deaths += groupItem.killedBy;
-			}
-		}
+		//obtain the KD, which was summed up while the stats were gathered
+		long kills = mobStats.getTotal(StatAggregate.COLUMN_KILLED);
+		long deaths = mobStats.getTotal(StatAggregate.COLUMN_KILLED_BY);
 		
 		//init a new group
 		var glSb = new StringBuilder();
@@ -210,11 +202,11 @@ public class BSStatPanel_Mobs extends BSStatPanel
 		int rightX = (panel.getTpeWidth() / 2) + 5, rightW = (panel.getTpeWidth() / 2) - 10;
 		
 		var lbl_kills_a = new TLabelElement(leftX, 0, leftW, 20, translatable("betterstats.hud.entity.kills"));
-		var lbl_kills_b = new TLabelElement(leftX, 0, leftW, 20, literal(Integer.toString(kills)));
+		var lbl_kills_b = new TLabelElement(leftX, 0, leftW, 20, literal(Long.toString(kills)));
 		lbl_kills_b.setHorizontalAlignment(HorizontalAlignment.RIGHT);
 		
 		var lbl_deaths_a = new TLabelElement(rightX, 0, rightW, 20, translatable("betterstats.hud.entity.deaths"));
-		var lbl_deaths_b = new TLabelElement(rightX, 0, rightW, 20, literal(Integer.toString(deaths)));
+		var lbl_deaths_b = new TLabelElement(rightX, 0, rightW, 20, literal(Long.toString(deaths)));
 		lbl_deaths_b.setHorizontalAlignment(HorizontalAlignment.RIGHT);
 		
 		panel.addTChild(lbl_kills_a, true);
@@ -222,6 +214,16 @@ public class BSStatPanel_Mobs extends BSStatPanel
 		panel.addTChild(lbl_deaths_a, true);
 		panel.addTChild(lbl_deaths_b, true);
 	}
+	
+	/**
+	 * Creates the tooltip for a group label, showing the subtotals of that group.
+	 */
+	protected <K> Text createGroupTooltip(StatAggregate<K, StatUtilsMobStat> mobStats, K group)
+	{
+		return literal(
+				translatable("betterstats.hud.entity.kills").getString() + " - " + mobStats.getGroupTotal(group, StatAggregate.COLUMN_KILLED) + "\n" +
+				translatable("betterstats.hud.entity.deaths").getString() + " - " + mobStats.getGroupTotal(group, StatAggregate.COLUMN_KILLED_BY));
+	}
 	// ==================================================
 	protected BSStatWidget_Mob createStatWidget(StatUtilsMobStat stat, int x, int y, int size)
 	{
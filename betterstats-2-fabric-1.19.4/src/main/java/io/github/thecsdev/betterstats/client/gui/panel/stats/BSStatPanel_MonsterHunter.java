@@ -27,6 +27,9 @@ public class BSStatPanel_MonsterHunter extends BSStatPanel_Mobs
 					mobStat.entityType != EntityType.ILLUSIONER;
 		});
 	}
+	
+	//all monsters are shown, even the ones that were never hunted
+	public @Override boolean getIncludeEmptyStats() { return true; }
 	// ==================================================
 	protected BSStatWidget_Mob createStatWidget(StatUtilsMobStat stat, int x, int y, int size)
 	{
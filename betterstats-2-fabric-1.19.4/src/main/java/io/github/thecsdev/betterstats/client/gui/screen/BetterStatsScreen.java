@@ -1,11 +1,10 @@
 package io.github.thecsdev.betterstats.client.gui.screen;
 
 import static io.github.thecsdev.betterstats.BetterStats.LOGGER;
-import static io.github.thecsdev.betterstats.client.network.BetterStatsClientNetworkHandler.enableBSSProtocol;
-import static io.github.thecsdev.betterstats.client.network.BetterStatsClientNetworkHandler.serverHasBSS;
-import static io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler.C2S_REQ_STATS;
 import static io.github.thecsdev.tcdcommons.api.util.TextUtils.translatable;
 
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 
 import org.apache.commons.lang3.StringUtils;
@@ -19,24 +18,30 @@ import io.github.thecsdev.betterstats.client.gui.panel.BSPanel_Downloading;
 import io.github.thecsdev.betterstats.client.gui.panel.BSPanel_Statistics;
 import io.github.thecsdev.betterstats.client.network.BStatsListener;
 import io.github.thecsdev.betterstats.client.network.BetterStatsClientNetworkHandler;
+import io.github.thecsdev.betterstats.client.network.StatsRequestTracker;
 import io.github.thecsdev.betterstats.network.BSNetworkProfile;
+import io.github.thecsdev.betterstats.util.ItemGroupIndex;
+import io.github.thecsdev.betterstats.util.StatSearchIndex;
+import io.github.thecsdev.betterstats.util.StatSearchIndex.SearchResult;
+import io.github.thecsdev.betterstats.util.StatSnapshot;
 import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsStat;
 import io.github.thecsdev.tcdcommons.api.client.gui.other.TTooltipElement;
 import io.github.thecsdev.tcdcommons.api.client.gui.screen.TScreenPlus;
+import io.github.thecsdev.tcdcommons.api.hooks.TCommonHooks;
 import io.github.thecsdev.tcdcommons.api.util.GenericProperties;
 import io.github.thecsdev.tcdcommons.api.util.SubjectToChange;
-import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.util.math.MatrixStack;
-import net.minecraft.item.ItemGroups;
-import net.minecraft.network.PacketByteBuf;
 import net.minecraft.network.packet.c2s.play.ClientStatusC2SPacket;
 import net.minecraft.network.packet.c2s.play.ClientStatusC2SPacket.Mode;
-import net.minecraft.network.packet.c2s.play.CustomPayloadC2SPacket;
 import net.minecraft.resource.featuretoggle.FeatureFlags;
 import net.minecraft.resource.featuretoggle.FeatureSet;
+import net.minecraft.stat.Stat;
 import net.minecraft.stat.StatHandler;
+import net.minecraft.stat.Stats;
 import net.minecraft.text.MutableText;
 import net.minecraft.util.Identifier;
 
@@ -61,7 +66,7 @@ public class BetterStatsScreen extends TScreenPlus implements BStatsListener
 		Default(translatable("betterstats.gui.filters.group_by.default")),
 		Mod(translatable("betterstats.gui.filters.group_by.mod")),
 		None(translatable("betterstats.gui.filters.group_by.none"));
-
+		
 		private final MutableText text;
 		GroupStatsBy(MutableText text) { this.text = text; }
 		public MutableText asText() { return text; }
@@ -71,7 +76,11 @@ public class BetterStatsScreen extends TScreenPlus implements BStatsListener
 	public static final String FEEDBACK_URL = "https://github.com/TheCSDev/mc-better-stats";
 	// ==================================================
 	protected boolean STATUS_RECIEVED;
-	protected int STATUS_TIMEOUT;
+	/**
+	 * The {@link CompletableFuture} of the stats request that is currently
+	 * being waited for, or null if there isn't one.
+	 */
+	protected @Nullable CompletableFuture<BSNetworkProfile> statsRequest;
 	// --------------------------------------------------
 	public final Screen parent;
 	public final BSNetworkProfile targetProfile;
@@ -86,6 +95,25 @@ public class BetterStatsScreen extends TScreenPlus implements BStatsListener
 	public GroupStatsBy filter_groupBy;
 	// --------------------------------------------------
 	public final GenericProperties cache = new GenericProperties();
+	
+	/**
+	 * The cached {@link StatSnapshot} of the {@link #getStatHandler()}.
+	 * @see #getStatSnapshot()
+	 */
+	protected @Nullable StatSnapshot statSnapshot;
+	
+	/**
+	 * A copy of the stats the statistics panel was last initialized with,
+	 * used to tell whether the stats that arrive change anything that is shown.
+	 * @see #onStatsReady(BSNetworkProfile)
+	 */
+	protected final Object2IntOpenHashMap<Stat<?>> shownStats = new Object2IntOpenHashMap<>();
+	
+	/**
+	 * The cached {@link SearchResult} for the {@link #filter_searchTerm}.
+	 * @see #getSearchResult()
+	 */
+	protected @Nullable SearchResult searchResult;
 	// ==================================================
 	/**
 	 * Creates a {@link BetterStatsScreen} instance.
@@ -103,7 +131,7 @@ public class BetterStatsScreen extends TScreenPlus implements BStatsListener
 	{
 		super(translatable("gui.stats"));
 		this.STATUS_RECIEVED = false;
-		this.STATUS_TIMEOUT = 0;
+		this.statsRequest = null;
 		this.client = MinecraftClient.getInstance(); //need this
 		this.parent = parent;
 		
@@ -128,42 +156,74 @@ public class BetterStatsScreen extends TScreenPlus implements BStatsListener
 	//updates. instead, send it only once
 	public @Override void onOpened()
 	{
+		//cached stats are shown right away (see init), and then refreshed, which
+		//only has the server send the stats that changed since they were received
 		if(!STATUS_RECIEVED) sendStatsRequest();
+		else refreshStats();
 		//as of 1.19.3, item groups need a manual update
+		//(the item group index is rebuilt if anything changes)
 		@SuppressWarnings("resource")
 		var wl = getClient().player.world.getRegistryManager();
-		ItemGroups.updateDisplayContext(FeatureSet.of(FeatureFlags.VANILLA), true, wl);
+		ItemGroupIndex.updateDisplayContext(FeatureSet.of(FeatureFlags.VANILLA), true, wl);
 	}
 	// --------------------------------------------------
 	public @Override boolean shouldRenderInGameHud() { return false; }
+	protected @Override void onClosed() { cancelStatsRequest(); }
 	// --------------------------------------------------
-	public @Override void tick()
-	{
-		if(this.STATUS_RECIEVED || this.STATUS_TIMEOUT > 60)
-			return;
-		else if(this.STATUS_TIMEOUT < 60)
-			this.STATUS_TIMEOUT++;
-		else if(this.STATUS_TIMEOUT == 60)
-		{
-			this.panel_download.onTimedOut();
-			this.STATUS_TIMEOUT++;
-		}
-	}
-	
 	/**
-	 * Sends a {@link ClientStatusC2SPacket} to the server
-	 * with the {@link ClientStatusC2SPacket.Mode.REQUEST_STATS} mode,
-	 * aka a statistics request.
+	 * Asks the server for the stats of the {@link #targetProfile} using
+	 * {@link StatsRequestTracker#request(GameProfile)}, and shows them once they arrive.
 	 */
 	public void sendStatsRequest()
 	{
+		cancelStatsRequest();
 		this.STATUS_RECIEVED = false;
-		this.STATUS_TIMEOUT = 0;
 		this.panel_download.onSendRequest();
-		
 		panel_download.setVisible(true);
-		if(!sendStatsRequestPacket())
-			this.panel_download.onTimedOut();
+		
+		final var request = StatsRequestTracker.request(getListenerTargetGameProfile());
+		this.statsRequest = request;
+		request.whenComplete((profile, error) ->
+		{
+			//ignore the requests that were replaced or cancelled
+			if(this.statsRequest != request || request.isCancelled()) return;
+			this.statsRequest = null;
+			
+			//the stats may have already been shown, by the time the request completes
+			if(error == null) { if(!STATUS_RECIEVED) onStatsReady(profile); }
+			else if(error instanceof NoSuchElementException || error.getCause() instanceof NoSuchElementException)
+				this.panel_download.onPlayer404();
+			else this.panel_download.onTimedOut();
+		});
+	}
+	
+	/**
+	 * Asks the server for the stats of the {@link #targetProfile} like {@link #sendStatsRequest()}
+	 * does, but keeps showing the current stats while waiting, and ignores failed requests.
+	 */
+	public void refreshStats()
+	{
+		cancelStatsRequest();
+		final var request = StatsRequestTracker.request(getListenerTargetGameProfile());
+		this.statsRequest = request;
+		request.thenAccept(profile ->
+		{
+			//onStatsReady may have already been called for these stats, in which case the request was cancelled
+			if(this.statsRequest != request) return;
+			this.statsRequest = null;
+			onStatsReady(profile);
+		});
+	}
+	
+	/**
+	 * Cancels the stats request that is currently being waited for, if there is one.
+	 * Other requests for the same stats are not affected.
+	 */
+	public void cancelStatsRequest()
+	{
+		if(this.statsRequest == null) return;
+		this.statsRequest.cancel(false);
+		this.statsRequest = null;
 	}
 	
 	/**
@@ -172,38 +232,9 @@ public class BetterStatsScreen extends TScreenPlus implements BStatsListener
 	 * request to the server.
 	 * @throws RuntimeException If something goes wrong while sending the packet.
 	 * @return True if the request was sent successfully.
+	 * @see BetterStatsClientNetworkHandler#c2s_requestStats(GameProfile)
 	 */
-	public boolean sendStatsRequestPacket()
-	{
-		//prepare
-		var client = getClient();
-		var localPlayer = client.player;
-		if(localPlayer == null) return false;
-		
-		//bss network protocol method
-		var targetGameProfile = this.getListenerTargetGameProfile();
-		if(!BSNetworkProfile.compareGameProfiles(targetGameProfile, localPlayer.getGameProfile()))
-		{
-			// ---------- if not requesting localPlayer stats
-			//make sure bss is installed on the server, and
-			//that the client is okay with sending bss requests to it
-			if(!serverHasBSS || !enableBSSProtocol) return false;
-			//create packet
-			var data = new PacketByteBuf(Unpooled.buffer());
-			BSNetworkProfile.writeGameProfile(data, targetGameProfile);
-			var packet = new CustomPayloadC2SPacket(C2S_REQ_STATS, data);
-			//send packet and return
-			client.getNetworkHandler().sendPacket(packet);
-			LOGGER.debug("Client requesting stats from server using CustomPayloadC2SPacket.");
-			return true;
-		}
-		
-		//vanilla network protocol method //if requesting localPlayer stats
-		var packet = new ClientStatusC2SPacket(Mode.REQUEST_STATS);
-		client.getNetworkHandler().sendPacket(packet);
-		LOGGER.debug("Client requesting stats from server using ClientStatusC2SPacket.");
-		return true;
-	}
+	public boolean sendStatsRequestPacket() { return BetterStatsClientNetworkHandler.c2s_requestStats(getListenerTargetGameProfile()); }
 	// ==================================================
 	/**
 	 * Returns the {@link StatHandler} whose stats this
@@ -211,6 +242,18 @@ public class BetterStatsScreen extends TScreenPlus implements BStatsListener
 	 */
 	public StatHandler getStatHandler() { return this.targetProfile.stats; }
 	
+	/**
+	 * Returns the {@link StatSnapshot} of the {@link #getStatHandler()}.<br/>
+	 * The snapshot is cached until new statistics are received, so that
+	 * re-initializing the stat panels does not have to re-read all the stats.
+	 */
+	public StatSnapshot getStatSnapshot()
+	{
+		if(this.statSnapshot == null || this.statSnapshot.getStatHandler() != getStatHandler())
+			this.statSnapshot = new StatSnapshot(getStatHandler());
+		return this.statSnapshot;
+	}
+	
 	/**
 	 * Returns the currently used stat panel.
 	 */
@@ -229,19 +272,32 @@ public class BetterStatsScreen extends TScreenPlus implements BStatsListener
 	public Predicate<StatUtilsStat> getStatPredicate_emptyFilter() { return stat -> filter_showEmpty || !stat.isEmpty(); }
 	public Predicate<StatUtilsStat> getStatPredicate_searchFilter()
 	{
-		return stat ->
-		{
-			//approve if there is no search term
-			if(StringUtils.isAllBlank(this.filter_searchTerm))
-				return true;
-			
-			//obtain filter strings
-			String lbl = stat.label.getString().toLowerCase().replaceAll("\\s+","");
-			String st = this.filter_searchTerm.toLowerCase().replaceAll("\\s+","");
-			
-			//test
-			return lbl.contains(st);
-		};
+		//approve if there is no search term
+		final var searchResult = getSearchResult();
+		if(searchResult == null) return stat -> true;
+		
+		//the search index already knows which stats match
+		return stat -> searchResult.matches(stat);
+	}
+	
+	/**
+	 * Returns the {@link StatSearchIndex} {@link SearchResult} for the current
+	 * {@link #filter_searchTerm}, or null if there is no search term.<br/>
+	 * The result is cached for as long as the search term stays the same, and is
+	 * refined using {@link StatSearchIndex#refine(SearchResult, String)} when it changes.
+	 */
+	public @Nullable SearchResult getSearchResult()
+	{
+		if(StringUtils.isAllBlank(this.filter_searchTerm))
+			return null;
+		
+		//when the search term is extended, the previous result is narrowed
+		//down instead of searching through all the stats again
+		final var index = StatSearchIndex.getInstance();
+		if(this.searchResult == null || this.searchResult.getIndex() != index ||
+				!this.searchResult.getSearchTerm().equals(this.filter_searchTerm))
+			this.searchResult = index.refine(this.searchResult, this.filter_searchTerm);
+		return this.searchResult;
 	}
 	// ==================================================
 	protected @Override void init()
@@ -253,8 +309,8 @@ public class BetterStatsScreen extends TScreenPlus implements BStatsListener
 		addTChild(panel_stats);
 		
 		//after initialization of all necessary elements is
-		//done, start off by sending a request
-		if(STATUS_RECIEVED) onStatsReady(this.targetProfile);
+		//done, show the stats if they're already here
+		if(STATUS_RECIEVED) showStats();
 	}
 	// --------------------------------------------------
 	public @Override GameProfile getListenerTargetGameProfile() { return this.targetProfile.gameProfile; }
@@ -262,24 +318,74 @@ public class BetterStatsScreen extends TScreenPlus implements BStatsListener
 	{
 		//update the status flag
 		STATUS_RECIEVED = true;
+		cancelStatsRequest(); //the stats arrived, so there's no need to wait for them
 		LOGGER.debug("Client received stats from server for: " + recievedProfile);
 		if(this.targetProfile.stats != recievedProfile.stats)
 			this.targetProfile.putAllStats(recievedProfile.stats);
 		
+		//if the stats are already shown, only re-initialize them if the current tab shows any of the changes
+		if(this.panel_stats != null && this.panel_stats.getVisible())
+		{
+			final var statMap = TCommonHooks.getStatHandlerStatMap(this.targetProfile.stats);
+			boolean changed = statMap.size() != this.shownStats.size(), changedShown = changed;
+			for(var entry : Object2IntMaps.fastIterable(statMap))
+			{
+				if(this.shownStats.getInt(entry.getKey()) == entry.getIntValue()) continue;
+				changed = true;
+				if(changedShown = isShownOnCurrentTab(entry.getKey())) break;
+			}
+			if(changed) this.statSnapshot = null; //the stats changed, so the snapshot is outdated
+			if(!changedShown) return;
+		}
+		else this.statSnapshot = null;
+		showStats();
+	}
+	
+	/**
+	 * Returns true if a given {@link Stat} is shown on the {@link #filter_currentTab}.
+	 */
+	protected boolean isShownOnCurrentTab(Stat<?> stat)
+	{
+		final var type = stat.getType();
+		switch(this.filter_currentTab)
+		{
+			case General: return type == Stats.CUSTOM;
+			case Entities:
+			case MonstersHunted: return type == Stats.KILLED || type == Stats.KILLED_BY;
+			case Items:
+			case FoodStuffs: return type != Stats.CUSTOM && type != Stats.KILLED && type != Stats.KILLED_BY;
+			default: return true;
+		}
+	}
+	
+	/**
+	 * Hides the downloading panel, and (re-)initializes the statistics panel.
+	 */
+	protected void showStats()
+	{
 		//hide the downloading panel
 		//and show the statistics panel
 		panel_download.setVisible(false);
 		panel_stats.setVisible(true);
 		
-		//initialize the statistics panel
+		//initialize the statistics panel, and remember what it was initialized with
 		panel_stats.clearTChildren();
-		if(getStatHandler() != null) panel_stats.init();
+		this.shownStats.clear();
+		if(getStatHandler() == null) return;
+		this.shownStats.putAll(TCommonHooks.getStatHandlerStatMap(getStatHandler()));
+		panel_stats.init();
+	}
+	public @Override void onStatsProgress(int receivedBytes, int totalBytes)
+	{
+		if(STATUS_RECIEVED) return;
+		if(this.panel_download != null)
+			this.panel_download.onProgress(receivedBytes, totalBytes);
 	}
 	public @Override void onStatsPlayerNotFound()
 	{
 		if(this.panel_download != null)
 			this.panel_download.onPlayer404();
-		this.STATUS_TIMEOUT = 256;
+		cancelStatsRequest();
 	}
 	// ==================================================
 	public @Override void renderBackground(MatrixStack matrices) { /*no background*/ }
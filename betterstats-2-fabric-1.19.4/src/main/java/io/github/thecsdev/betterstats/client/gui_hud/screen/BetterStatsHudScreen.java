@@ -26,6 +26,7 @@ import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.ConfirmScreen;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.stat.Stat;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
 
@@ -238,8 +239,27 @@ public final class BetterStatsHudScreen extends TScreen
 		}
 		
 		//----- handle other stuff
-		//tick the BetterStatsHudScreen auto requester
-		BshsAutoRequest.tick();
+		//keep the server up to date on the stats the widgets show, and only
+		//fall back to the auto requester when the server can't push them
+		updateStatSubscriptions();
+		if(!BetterStatsClientNetworkHandler.isSubscribedToStats())
+			BshsAutoRequest.tick();
+	}
+	
+	/**
+	 * Subscribes to the {@link Stat}s the {@link BSHudStatWidget}s currently show,
+	 * using {@link BetterStatsClientNetworkHandler#c2s_subscribeStats(java.util.Collection)}.
+	 * Unsubscribes from all of them when the accuracy mode isn't on.
+	 */
+	public void updateStatSubscriptions()
+	{
+		//the accuracy mode is checked on its own, as the server doesn't check
+		//the player's prefs for the stats they subscribed to
+		var stats = new HashSet<Stat<?>>();
+		if(enableBSSProtocol && BetterStatsClientNetworkHandler.canSubscribeToStats())
+			for(var widget : this.stat_widgets)
+				if(widget != null) widget.collectShownStats(stats);
+		BetterStatsClientNetworkHandler.c2s_subscribeStats(stats);
 	}
 	
 	@SuppressWarnings({ "deprecation", "resource" })
@@ -1,8 +1,7 @@
 package io.github.thecsdev.betterstats.client.gui_hud.screen;
 
+import io.github.thecsdev.betterstats.client.network.StatsRequestTracker;
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.network.packet.c2s.play.ClientStatusC2SPacket;
-import net.minecraft.network.packet.c2s.play.ClientStatusC2SPacket.Mode;
 
 public final class BshsAutoRequest
 {
@@ -26,8 +25,9 @@ public final class BshsAutoRequest
 	
 	private static void sendRequest()
 	{
-		var packet = new ClientStatusC2SPacket(Mode.REQUEST_STATS);
-		MinecraftClient.getInstance().getNetworkHandler().sendPacket(packet);
+		//shares the request with the stats screen, if it already asked for the same stats
+		var localPlayer = MinecraftClient.getInstance().player;
+		if(localPlayer != null) StatsRequestTracker.request(localPlayer.getGameProfile());
 		resetFlags();
 	}
 	// --------------------------------------------------
@@ -2,6 +2,7 @@ package io.github.thecsdev.betterstats.client.gui_hud.widget;
 
 import static io.github.thecsdev.tcdcommons.api.util.TextUtils.translatable;
 
+import java.util.Collection;
 import java.util.Objects;
 
 import org.apache.logging.log4j.util.TriConsumer;
@@ -15,6 +16,7 @@ import net.minecraft.entity.EntityType;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.Items;
+import net.minecraft.stat.Stat;
 import net.minecraft.stat.StatHandler;
 import net.minecraft.text.Text;
 
@@ -128,6 +130,12 @@ public abstract class BSHudStatWidget extends TElement
 		tick();
 	}
 	public abstract void onInit();
+	
+	/**
+	 * Adds the {@link Stat}s this {@link BSHudStatWidget} currently shows to a given
+	 * {@link Collection}, so the server can be asked to push only those when they change.
+	 */
+	public abstract void collectShownStats(Collection<Stat<?>> stats);
 	// --------------------------------------------------
 	public void reAlignElements()
 	{
@@ -2,11 +2,13 @@ package io.github.thecsdev.betterstats.client.gui_hud.widget;
 
 import static io.github.thecsdev.tcdcommons.api.util.TextUtils.translatable;
 
+import java.util.Collection;
 import java.util.Objects;
 
 import io.github.thecsdev.tcdcommons.api.client.gui.panel.TContextMenuPanel;
 import io.github.thecsdev.tcdcommons.api.util.TextUtils;
 import net.minecraft.entity.EntityType;
+import net.minecraft.stat.Stat;
 import net.minecraft.stat.StatHandler;
 import net.minecraft.stat.Stats;
 import net.minecraft.text.Text;
@@ -31,6 +33,11 @@ public class BSHudStatWidget_Entity extends BSHudStatWidget
 		addEntityEntry(this.entityType);
 		this.lblStatEntry = new LabelEntry(null);
 	}
+	public @Override void collectShownStats(Collection<Stat<?>> stats)
+	{
+		if(showKills) stats.add(Stats.KILLED.getOrCreateStat(entityType));
+		if(showDeaths) stats.add(Stats.KILLED_BY.getOrCreateStat(entityType));
+	}
 	// ==================================================
 	public Text createText()
 	{
@@ -3,13 +3,17 @@ package io.github.thecsdev.betterstats.client.gui_hud.widget;
 import static io.github.thecsdev.tcdcommons.api.util.TextUtils.literal;
 import static io.github.thecsdev.tcdcommons.api.util.TextUtils.translatable;
 
+import java.util.Collection;
 import java.util.Objects;
 
 import io.github.thecsdev.betterstats.util.ItemStatEnum;
 import io.github.thecsdev.betterstats.util.StatUtils;
 import io.github.thecsdev.tcdcommons.api.client.gui.panel.TContextMenuPanel;
+import net.minecraft.block.Block;
 import net.minecraft.item.Item;
+import net.minecraft.stat.Stat;
 import net.minecraft.stat.StatHandler;
+import net.minecraft.stat.Stats;
 import net.minecraft.text.Text;
 
 public class BSHudStatWidget_Item extends BSHudStatWidget
@@ -33,6 +37,23 @@ public class BSHudStatWidget_Item extends BSHudStatWidget
 		addItemEntry(this.item);
 		this.lblStatEntry = new LabelEntry(null);
 	}
+	public @Override void collectShownStats(Collection<Stat<?>> stats)
+	{
+		switch(this.shownStat)
+		{
+			case MINED:
+				var block = Block.getBlockFromItem(this.item);
+				if(block != null && !block.getDefaultState().isAir())
+					stats.add(Stats.MINED.getOrCreateStat(block));
+				break;
+			case CRAFTED: stats.add(Stats.CRAFTED.getOrCreateStat(this.item)); break;
+			case USED: stats.add(Stats.USED.getOrCreateStat(this.item)); break;
+			case BROKEN: stats.add(Stats.BROKEN.getOrCreateStat(this.item)); break;
+			case PICKED_UP: stats.add(Stats.PICKED_UP.getOrCreateStat(this.item)); break;
+			case DROPPED: stats.add(Stats.DROPPED.getOrCreateStat(this.item)); break;
+			default: break;
+		}
+	}
 	// ==================================================
 	public Text createText()
 	{
@@ -1,5 +1,7 @@
 package io.github.thecsdev.betterstats.client.network;
 
+import java.util.List;
+
 import com.mojang.authlib.GameProfile;
 
 import io.github.thecsdev.betterstats.BetterStats;
@@ -24,6 +26,22 @@ public interface BStatsListener
 	 */
 	public abstract void onStatsReady(BSNetworkProfile profile);
 	
+	/**
+	 * Called by {@link BetterStatsClientNetworkHandler} while large stats
+	 * are being received in fragments, each time a fragment arrives.
+	 * @param receivedBytes The number of bytes received so far.
+	 * @param totalBytes The total number of bytes that are being received.
+	 */
+	public default void onStatsProgress(int receivedBytes, int totalBytes) {}
+	
+	/**
+	 * Called by {@link BetterStatsClientNetworkHandler} when the stats requested using
+	 * {@link BetterStatsClientNetworkHandler#c2s_requestStatsBatch(List, java.util.Collection)} arrive.
+	 * Called once per batch.
+	 * @param profiles The {@link BSNetworkProfile}s of the players that were found.
+	 */
+	public default void onStatsBatchReady(List<BSNetworkProfile> profiles) {}
+	
 	/**
 	 * Called when the server fails to find an online player
 	 * with the requested {@link #getListenerTargetGameProfile()}
@@ -3,11 +3,22 @@ package io.github.thecsdev.betterstats.client.network;
 import static io.github.thecsdev.betterstats.BetterStats.LOGGER;
 import static io.github.thecsdev.betterstats.client.gui_hud.screen.BetterStatsHudScreen.HUD_ID;
 import static io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler.C2S_PREFS;
+import static io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler.C2S_REQ_STATS;
 import static io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler.S2C_I_HAVE_BSS;
+import static io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler.C2S_REQ_STATS_BATCH;
+import static io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler.C2S_SUBSCRIBE_STATS;
 import static io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler.S2C_REQ_PREFS;
 import static io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler.S2C_STATS;
+import static io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler.S2C_STATS_BATCH;
+import static io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler.S2C_STATS_BATCH_CHUNK;
+import static io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler.S2C_STATS_CHUNK;
 import static io.github.thecsdev.tcdcommons.api.client.registry.TCDCommonsClientRegistry.InGameHud_Screens;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -16,21 +27,35 @@ import org.spongepowered.include.com.google.common.base.Objects;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.mojang.authlib.GameProfile;
 
 import dev.architectury.event.events.client.ClientPlayerEvent;
+import dev.architectury.event.events.client.ClientTickEvent;
 import dev.architectury.networking.NetworkManager;
 import dev.architectury.networking.NetworkManager.Side;
 import io.github.thecsdev.betterstats.BetterStats;
 import io.github.thecsdev.betterstats.client.gui_hud.screen.BetterStatsHudScreen;
 import io.github.thecsdev.betterstats.network.BSNetworkProfile;
+import io.github.thecsdev.betterstats.network.BSPayloadCompression;
+import io.github.thecsdev.betterstats.network.BSStatsCodec;
+import io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler;
+import io.github.thecsdev.betterstats.network.StatsChunkSender;
 import io.github.thecsdev.tcdcommons.api.events.TNetworkEvent;
+import io.github.thecsdev.tcdcommons.api.hooks.TCommonHooks;
 import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.network.NetworkSide;
 import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.packet.c2s.play.ClientStatusC2SPacket;
+import net.minecraft.network.packet.c2s.play.ClientStatusC2SPacket.Mode;
 import net.minecraft.network.packet.c2s.play.CustomPayloadC2SPacket;
 import net.minecraft.network.packet.s2c.play.StatisticsS2CPacket;
+import net.minecraft.stat.Stat;
+import net.minecraft.util.Identifier;
 
 /**
  * Client-side network handler for {@link BetterStats}.
@@ -40,7 +65,28 @@ public final class BetterStatsClientNetworkHandler
 	// ==================================================
 	public static boolean serverHasBSS;
 	public static boolean enableBSSProtocol;
-	private static final Cache<String, BSNetworkProfile> ProfileCache;
+	/**
+	 * The server's {@link BetterStatsNetworkHandler#PROTOCOL_VERSION}, or 0 if the
+	 * server doesn't have {@link BetterStats}, or if it is running an older version of it.
+	 */
+	public static int serverProtocolVersion;
+	/**
+	 * The capability flags the server supports. See {@link BetterStatsNetworkHandler#CAPABILITIES}.
+	 */
+	public static int serverCapabilities;
+	/**
+	 * The max total weight of the cached {@link BSNetworkProfile}s, where each
+	 * profile weighs 1, plus the number of {@link Stat} entries it holds.
+	 */
+	public static final long PROFILE_CACHE_MAX_WEIGHT = 250000;
+	private static final Cache<UUID, BSNetworkProfile> ProfileCache;
+	private static final Cache<String, UUID> ProfileIds; //lower-case player names, and the UUIDs they belong to
+	// --------------------------------------------------
+	//the S2C_STATS (or S2C_STATS_BATCH) payloads currently being received in fragments, by their transfer IDs
+	private static final Int2ObjectLinkedOpenHashMap<ChunkedPayload> ChunkTransfers = new Int2ObjectLinkedOpenHashMap<>();
+	//
+	//the stats the client last subscribed to, or null if it didn't subscribe to any
+	private static @Nullable Set<Stat<?>> SubscribedStats;
 	// ==================================================
 	protected BetterStatsClientNetworkHandler() {}
 	public static void init() {/*calls static*/}
@@ -48,18 +94,34 @@ public final class BetterStatsClientNetworkHandler
 	public static @Nullable BSNetworkProfile getCachedProfile(GameProfile gameProfile)
 	{
 		if(gameProfile == null) return null;
-		var gpn = BSNetworkProfile.getGameProfileDisplayName(gameProfile);
-		var profile = ProfileCache.getIfPresent(gpn);
+		//profiles are cached by their UUIDs, so if there isn't one, find it using the name
+		var uuid = gameProfile.getId();
+		if(uuid == null && gameProfile.getName() != null)
+			uuid = ProfileIds.getIfPresent(gameProfile.getName().toLowerCase(Locale.ROOT));
+		var profile = (uuid != null) ? ProfileCache.getIfPresent(uuid) : null;
 		if(profile != null && profile.isLocalClient()) return null;
 		else return profile;
 	}
+	
+	/**
+	 * Returns the hit, miss, and eviction statistics of the cache that
+	 * holds the {@link BSNetworkProfile}s received from the server.
+	 */
+	public static CacheStats getProfileCacheStats() { return ProfileCache.stats(); }
 	// ==================================================
 	static
 	{
 		//init variables
 		ProfileCache = CacheBuilder.newBuilder()
+				.maximumWeight(PROFILE_CACHE_MAX_WEIGHT)
+				.weigher((UUID uuid, BSNetworkProfile profile) -> 1 + TCommonHooks.getStatHandlerStatMap(profile.stats).size())
 				.expireAfterWrite(2, TimeUnit.MINUTES)
 				.expireAfterAccess(2, TimeUnit.MINUTES)
+				.recordStats()
+				.build();
+		ProfileIds = CacheBuilder.newBuilder()
+				.maximumSize(1024)
+				.expireAfterAccess(10, TimeUnit.MINUTES)
 				.build();
 		
 		//init network
@@ -71,14 +133,26 @@ public final class BetterStatsClientNetworkHandler
 		//by default, do not respond to S2C_REQ_PREFS
 		enableBSSProtocol = false;
 		serverHasBSS = false;
+		serverProtocolVersion = serverCapabilities = 0;
 		ClientPlayerEvent.CLIENT_PLAYER_QUIT.register((cp) ->
 		{
 			enableBSSProtocol = false;
 			serverHasBSS = false;
+			serverProtocolVersion = serverCapabilities = 0;
+			synchronized(BetterStatsClientNetworkHandler.class) { ChunkTransfers.clear(); }
+			SubscribedStats = null;
+			StatsRequestTracker.clear();
 			InGameHud_Screens.remove(HUD_ID); //TODO - temporary bug fix for switching worlds/servers
 		});
 		//handle S2C_REQ_PREFS
-		NetworkManager.registerReceiver(Side.S2C, S2C_I_HAVE_BSS, (payload, context) -> serverHasBSS = true);
+		NetworkManager.registerReceiver(Side.S2C, S2C_I_HAVE_BSS, (payload, context) ->
+		{
+			serverHasBSS = true;
+			//older versions of the mod don't send the protocol version and capabilities
+			if(!payload.isReadable()) return;
+			serverProtocolVersion = payload.readVarInt();
+			serverCapabilities = payload.readVarInt();
+		});
 		NetworkManager.registerReceiver(Side.S2C, S2C_REQ_PREFS, (payload, context) -> c2s_sendPrefs());
 		
 		//handle receiving stats
@@ -87,32 +161,247 @@ public final class BetterStatsClientNetworkHandler
 			//handle BSNetworkProfile-s over the vanilla packet protocol
 			if(!(packet instanceof StatisticsS2CPacket) || side != NetworkSide.CLIENTBOUND)
 				return;
-			try { onReceivedBSNetworkProfile(BSNetworkProfile.ofLocalClient()); }
-			catch(IllegalStateException ise) { /*MinecraftClient.player is null. Ignore that.*/ }
+			MinecraftClient.getInstance().execute(() ->
+			{
+				try { onReceivedBSNetworkProfile(BSNetworkProfile.ofLocalClient(), false); }
+				catch(IllegalStateException ise) { /*MinecraftClient.player is null. Ignore that.*/ }
+			});
+		});
+		NetworkManager.registerReceiver(Side.S2C, S2C_STATS, (payload, context) -> onReceivedStatsPayload(payload));
+		NetworkManager.registerReceiver(Side.S2C, S2C_STATS_CHUNK, (payload, context) -> onReceivedStatsChunk(payload, S2C_STATS_CHUNK));
+		NetworkManager.registerReceiver(Side.S2C, S2C_STATS_BATCH, (payload, context) -> onReceivedStatsBatchPayload(payload));
+		NetworkManager.registerReceiver(Side.S2C, S2C_STATS_BATCH_CHUNK, (payload, context) -> onReceivedStatsChunk(payload, S2C_STATS_BATCH_CHUNK));
+		
+		//time out the stats requests the server didn't respond to
+		ClientTickEvent.CLIENT_POST.register(client -> StatsRequestTracker.tick());
+	}
+	
+	/**
+	 * Handles a {@link BetterStatsNetworkHandler#S2C_STATS} payload.
+	 */
+	private static void onReceivedStatsPayload(PacketByteBuf payload)
+	{
+		//handle BSNetworkProfile-s over the S2C_STATS protocol
+		//(if the server has a protocol version, the packet starts with the capabilities it used)
+		int capabilities = (serverProtocolVersion > 0) ? payload.readVarInt() : 0;
+		
+		//read the delta header, if there is one
+		boolean isDelta = false;
+		int epoch = 0, revision = 0;
+		if((capabilities & BetterStatsNetworkHandler.CAP_STAT_DELTAS) != 0)
+		{
+			isDelta = payload.readBoolean();
+			epoch = payload.readInt();
+			revision = payload.readVarInt();
+		}
+		
+		//decompress the body, if needed
+		var body = payload;
+		if((capabilities & BetterStatsNetworkHandler.CAP_COMPRESSION) != 0)
+			body = BSPayloadCompression.readBody(payload);
+		
+		//read the profile. full snapshots replace the cached stats, while
+		//deltas and the legacy format are added on top of them
+		final boolean replaceStats = !isDelta && (capabilities & BetterStatsNetworkHandler.CAP_STAT_DELTAS) != 0;
+		var gameProfile = BSNetworkProfile.readGameProfile(body);
+		if(gameProfile == null)
+		{
+			//no profile means the player wasn't found. the response has no stats in it, and
+			//ends with the profile the client asked for, if the server supports that
+			BSNetworkProfile.readStats(body, capabilities, new Object2IntOpenHashMap<>());
+			final boolean hasRequested = (capabilities & BetterStatsNetworkHandler.CAP_NOT_FOUND_PROFILE) != 0;
+			final var requestedProfile = hasRequested ? BSNetworkProfile.readGameProfile(body) : null;
+			MinecraftClient.getInstance().execute(() -> onPlayerNotFound(requestedProfile));
+			return;
+		}
+		
+		//the stats are read into a new profile here, on the network thread, and then merged into the
+		//cached one on the client thread, as open screens use the cached profiles' stats while rendering
+		final var profile = BSNetworkProfile.ofGameProfile(gameProfile);
+		BSNetworkProfile.readStats(body, capabilities, TCommonHooks.getStatHandlerStatMap(profile.stats));
+		profile.statsEpoch = epoch;
+		profile.statsRevision = revision;
+		final boolean fIsDelta = isDelta;
+		MinecraftClient.getInstance().execute(() ->
+		{
+			//deltas only hold the stats that changed since the cached ones, so if those are gone in the
+			//meantime (they expired, or the player was renamed), ask for a full snapshot instead
+			if(fIsDelta && !hasCachedStats(profile.gameProfile))
+			{
+				var uuid = profile.gameProfile.getId();
+				if(uuid != null) ProfileCache.invalidate(uuid); //so the request doesn't ask for a delta again
+				c2s_requestStats(profile.gameProfile);
+				return;
+			}
+			onReceivedBSNetworkProfile(profile, replaceStats);
 		});
-		NetworkManager.registerReceiver(Side.S2C, S2C_STATS, (payload, context) ->
-			//handle BSNetworkProfile-s over the S2C_STATS protocol
-			onReceivedBSNetworkProfile(BSNetworkProfile.readPacket(payload))
-		);
 	}
 	
-	private static boolean onReceivedBSNetworkProfile(BSNetworkProfile profile)
+	/**
+	 * Returns true if there is a cached {@link BSNetworkProfile} a
+	 * received delta can be applied to, for a given player.
+	 */
+	private static boolean hasCachedStats(GameProfile gameProfile)
+	{
+		var uuid = gameProfile.getId();
+		var cached = (uuid != null) ? ProfileCache.asMap().get(uuid) : null;
+		return cached != null && !cached.isLocalClient() && Objects.equal(cached.gameProfile.getName(), gameProfile.getName());
+	}
+	
+	/**
+	 * Handles a {@link BetterStatsNetworkHandler#S2C_STATS_BATCH} payload, by handling each
+	 * of the received profiles, and then notifying the current {@link BStatsListener}.
+	 */
+	private static void onReceivedStatsBatchPayload(PacketByteBuf payload)
 	{
-		//null check, return false to indicate failure
-		if(profile == null) return false;
+		//read the header, and decompress the body, if needed
+		final int capabilities = payload.readVarInt();
+		final boolean isSubset = payload.readBoolean();
+		var body = payload;
+		if((capabilities & BetterStatsNetworkHandler.CAP_COMPRESSION) != 0)
+			body = BSPayloadCompression.readBody(payload);
 		
-		//obtain profile info
-		var pDisplayName = profile.getProfileDisplayName();
-		var existingProfile = ProfileCache.getIfPresent(pDisplayName);
-		//var notifyCurrentScreen = (existingProfile == null) || profile.isLocalClient();
+		//read the shared stat dictionary
+		final var dictionary = BSStatsCodec.readStatDictionary(body);
+		
+		//read the profiles (into new ones, see onReceivedStatsPayload)
+		final int profileCount = body.readVarInt();
+		final var received = new ArrayList<BSNetworkProfile>(Math.min(profileCount, BetterStatsNetworkHandler.MAX_BATCH_SIZE));
+		for(int i = 0; i < profileCount; i++)
+		{
+			final boolean found = body.readBoolean();
+			var gameProfile = BSNetworkProfile.readGameProfile(body);
+			if(!found) continue;
+			if(gameProfile == null) gameProfile = new GameProfile(new UUID(0, 0), null);
+			
+			final int epoch = body.readInt(), revision = body.readVarInt();
+			var profile = BSNetworkProfile.ofGameProfile(gameProfile);
+			BSStatsCodec.readDictionaryStats(body, dictionary, TCommonHooks.getStatHandlerStatMap(profile.stats));
+			profile.statsEpoch = epoch;
+			profile.statsRevision = revision;
+			received.add(profile);
+		}
+		
+		//merge them into the cached ones on the client thread (full snapshots replace the
+		//cached stats, while subsets are added on top of them), and notify
+		var client = MinecraftClient.getInstance();
+		client.execute(() ->
+		{
+			//hand out the cached profiles, as they hold the merged stats
+			final var profiles = new ArrayList<BSNetworkProfile>(received.size());
+			for(var profile : received)
+				profiles.add(onReceivedBSNetworkProfile(profile, !isSubset));
+			if(client.currentScreen instanceof BStatsListener)
+				((BStatsListener)client.currentScreen).onStatsBatchReady(profiles);
+		});
+	}
+	
+	/**
+	 * Handles a {@link BetterStatsNetworkHandler#S2C_STATS_CHUNK} (or
+	 * {@link BetterStatsNetworkHandler#S2C_STATS_BATCH_CHUNK}) fragment, by putting it in
+	 * place in its transfer's buffer (see {@link #ChunkTransfers}), and handling the
+	 * payload once all of its fragments arrive.
+	 * @param chunkChannel The channel the fragment was received over.
+	 */
+	private static synchronized void onReceivedStatsChunk(PacketByteBuf fragment, Identifier chunkChannel)
+	{
+		//read the fragment header
+		final int transferId = fragment.readVarInt();
+		final int fragmentIndex = fragment.readVarInt();
+		final int fragmentCount = fragment.readVarInt();
+		final int totalLength = fragment.readVarInt();
+		
+		//the first fragment starts a new transfer (the server only sends so many at once,
+		//so if there are more than that, the oldest one won't be finished anyway)
+		if(fragmentIndex == 0)
+		{
+			if(totalLength < 0 || totalLength > BSPayloadCompression.MAX_UNCOMPRESSED_LENGTH)
+			{
+				LOGGER.debug("Ignoring '" + S2C_STATS_CHUNK + "' transfer with an invalid length: " + totalLength);
+				return;
+			}
+			if(ChunkTransfers.size() >= StatsChunkSender.MAX_CONCURRENT_TRANSFERS)
+				ChunkTransfers.removeFirst();
+			ChunkTransfers.put(transferId, new ChunkedPayload(chunkChannel, totalLength, fragmentCount));
+		}
+		
+		//fragments must arrive in order, and belong to a known transfer
+		final var transfer = ChunkTransfers.get(transferId);
+		if(transfer == null || chunkChannel != transfer.channel || fragmentIndex != transfer.nextFragment ||
+				transfer.buffer.writableBytes() < fragment.readableBytes())
+		{
+			LOGGER.debug("Ignoring out of order '" + S2C_STATS_CHUNK + "' fragment.");
+			ChunkTransfers.remove(transferId);
+			return;
+		}
+		transfer.buffer.writeBytes(fragment);
+		transfer.nextFragment++;
+		
+		//report the progress...
+		final int received = transfer.buffer.readableBytes();
+		var client = MinecraftClient.getInstance();
+		if(client.currentScreen instanceof BStatsListener)
+		{
+			var bsl = (BStatsListener)client.currentScreen;
+			client.executeSync(() -> bsl.onStatsProgress(received, totalLength));
+		}
+		client.executeSync(() -> StatsRequestTracker.onProgress());
+		
+		//...and handle the payload once it's complete
+		if(transfer.nextFragment < transfer.fragmentCount) return;
+		ChunkTransfers.remove(transferId);
+		if(chunkChannel == S2C_STATS_BATCH_CHUNK) onReceivedStatsBatchPayload(transfer.buffer);
+		else onReceivedStatsPayload(transfer.buffer);
+	}
+	
+	/**
+	 * Caches a received {@link BSNetworkProfile}, and notifies the current {@link BStatsListener}.<br/>
+	 * <b>Note:</b> Only call this on the client thread, as it modifies the cached profiles.
+	 * @param profile The received {@link BSNetworkProfile}.
+	 * @param replaceStats Whether the received stats replace the cached stats, instead of being
+	 * added on top of them.
+	 * @return The cached {@link BSNetworkProfile} holding the merged stats, or the
+	 * received one if it can't be cached, or null if the received one is null.
+	 */
+	private static @Nullable BSNetworkProfile onReceivedBSNetworkProfile(BSNetworkProfile profile, boolean replaceStats)
+	{
+		//null check, return null to indicate failure
+		if(profile == null) return null;
+		
+		//obtain profile info (profiles without a UUID aren't cached).
+		//Map.get is used here, so that only the lookups made by others count towards the cache stats
+		var uuid = profile.gameProfile.getId();
+		var pName = profile.gameProfile.getName();
+		final boolean cacheable = (uuid != null && !uuid.equals(new UUID(0, 0)));
+		var existingProfile = cacheable ? ProfileCache.asMap().get(uuid) : null;
 		
 		//cache...
-		if(existingProfile != null)
-			//if one exists, just add the updated stats on top of it
-			existingProfile.putAllStats(profile.stats);
+		if(existingProfile != null && Objects.equal(existingProfile.gameProfile.getName(), pName))
+		{
+			//if one exists, just add the updated stats on top of it (or replace them)
+			if(existingProfile != profile)
+			{
+				if(replaceStats) existingProfile.setAllStats(profile.stats);
+				else existingProfile.putAllStats(profile.stats);
+				existingProfile.statsEpoch = profile.statsEpoch;
+				existingProfile.statsRevision = profile.statsRevision;
+			}
+			//put it again, so its weight is updated
+			ProfileCache.put(uuid, existingProfile);
+		}
 		else
-			//but if one doesn't exist, then put this new one in place
-			ProfileCache.put(pDisplayName, (existingProfile = profile));
+		{
+			//but if one doesn't exist (or the player was renamed), then put this new one in place
+			if(existingProfile != null && !replaceStats)
+			{
+				var newStats = new Object2IntOpenHashMap<>(TCommonHooks.getStatHandlerStatMap(profile.stats));
+				profile.setAllStats(existingProfile.stats);
+				TCommonHooks.getStatHandlerStatMap(profile.stats).putAll(newStats);
+			}
+			existingProfile = profile;
+			if(cacheable) ProfileCache.put(uuid, profile);
+		}
+		if(cacheable && pName != null) ProfileIds.put(pName.toLowerCase(Locale.ROOT), uuid);
 		
 		//...and notify
 		var client = MinecraftClient.getInstance();
@@ -120,16 +409,176 @@ public final class BetterStatsClientNetworkHandler
 		if(screen instanceof BStatsListener)
 		{
 			var bsl = (BStatsListener)screen;
-			if(Objects.equal(profile.gameProfile.getId(), new UUID(0, 0)))
-				client.executeSync(() -> bsl.onStatsPlayerNotFound()); //TODO - Thread safety!
-			else if(BSNetworkProfile.compareGameProfiles(bsl.getListenerTargetGameProfile(), profile.gameProfile))
-				client.executeSync(() -> bsl.onStatsReady(profile)); //TODO - Thread safety!
+			//notify using the cached profile, as the received one may only contain the changed stats
+			if(BSNetworkProfile.compareGameProfiles(bsl.getListenerTargetGameProfile(), profile.gameProfile))
+				bsl.onStatsReady(existingProfile);
 		}
+		//(the requests are completed after the listener is notified, so it gets to see the stats first)
+		StatsRequestTracker.onReceived(existingProfile);
 		
-		//return true to indicate everything was done
-		return true;
+		//return the cached profile
+		return existingProfile;
 	}
+	
+	/**
+	 * Notifies the current {@link BStatsListener} and the {@link StatsRequestTracker}
+	 * that the server couldn't find (or couldn't send the stats of) a requested player.
+	 * Called on the client thread.
+	 * @param requestedProfile The profile the client asked for, or null if the server
+	 * doesn't support {@link BetterStatsNetworkHandler#CAP_NOT_FOUND_PROFILE}.
+	 */
+	private static void onPlayerNotFound(@Nullable GameProfile requestedProfile)
+	{
+		var client = MinecraftClient.getInstance();
+		if(client.currentScreen instanceof BStatsListener)
+		{
+			//if the server says who wasn't found, only notify the listener if it's the one it's waiting for
+			var bsl = (BStatsListener)client.currentScreen;
+			if(requestedProfile == null || BSNetworkProfile.compareGameProfiles(bsl.getListenerTargetGameProfile(), requestedProfile))
+				bsl.onStatsPlayerNotFound();
+		}
+		StatsRequestTracker.onPlayerNotFound(requestedProfile);
+	}
+	/**
+	 * Returns the capability flags both the client and the server support.
+	 */
+	public static int getSharedCapabilities() { return serverCapabilities & BetterStatsNetworkHandler.CAPABILITIES; }
 	// ==================================================
+	/**
+	 * Asks the server for the stats of a given player, using a {@link ClientStatusC2SPacket}
+	 * for the local player, and {@link BetterStatsNetworkHandler#C2S_REQ_STATS} for others.<br/>
+	 * <b>Note:</b> Prefer {@link StatsRequestTracker#request(GameProfile)}, as it doesn't send
+	 * duplicate requests, and tells the caller when the stats arrive.
+	 * @param targetGameProfile The profile of the player whose stats to ask for.
+	 * @return True if the request was sent successfully.
+	 */
+	public static boolean c2s_requestStats(GameProfile targetGameProfile)
+	{
+		//prepare
+		var client = MinecraftClient.getInstance();
+		var localPlayer = client.player;
+		if(localPlayer == null) return false;
+		
+		//bss network protocol method
+		if(!BSNetworkProfile.compareGameProfiles(targetGameProfile, localPlayer.getGameProfile()))
+		{
+			// ---------- if not requesting localPlayer stats
+			//make sure bss is installed on the server, and
+			//that the client is okay with sending bss requests to it
+			if(!serverHasBSS || !enableBSSProtocol) return false;
+			//create packet
+			var data = new PacketByteBuf(Unpooled.buffer());
+			BSNetworkProfile.writeGameProfile(data, targetGameProfile);
+			//tell the server which capabilities to use (servers with no protocol version don't expect this)
+			if(serverProtocolVersion > 0)
+			{
+				final int capabilities = getSharedCapabilities();
+				data.writeVarInt(capabilities);
+				//tell the server which revision of the stats the client already has
+				if((capabilities & BetterStatsNetworkHandler.CAP_STAT_DELTAS) != 0)
+				{
+					var cachedProfile = getCachedProfile(targetGameProfile);
+					data.writeInt(cachedProfile != null ? cachedProfile.statsEpoch : 0);
+					data.writeVarInt(cachedProfile != null ? cachedProfile.statsRevision : 0);
+				}
+			}
+			var packet = new CustomPayloadC2SPacket(C2S_REQ_STATS, data);
+			//send packet and return
+			client.getNetworkHandler().sendPacket(packet);
+			LOGGER.debug("Client requesting stats from server using CustomPayloadC2SPacket.");
+			return true;
+		}
+		
+		//vanilla network protocol method //if requesting localPlayer stats
+		var packet = new ClientStatusC2SPacket(Mode.REQUEST_STATS);
+		client.getNetworkHandler().sendPacket(packet);
+		LOGGER.debug("Client requesting stats from server using ClientStatusC2SPacket.");
+		return true;
+	}
+	
+	/**
+	 * Asks the server for the stats of multiple players using {@link BetterStatsNetworkHandler#C2S_REQ_STATS_BATCH}.
+	 * Larger requests are split into multiple batches of up to {@link BetterStatsNetworkHandler#MAX_BATCH_SIZE} players.
+	 * The received profiles are cached, and passed to {@link BStatsListener#onStatsBatchReady(List)}.
+	 * @param gameProfiles The profiles of the players whose stats to ask for.
+	 * @param statSubset The {@link Stat}s to ask for, or null to ask for all of them.
+	 * @return False if the server doesn't support {@link BetterStatsNetworkHandler#CAP_BATCH_STATS}.
+	 */
+	public static boolean c2s_requestStatsBatch(List<GameProfile> gameProfiles, @Nullable Collection<Stat<?>> statSubset)
+	{
+		//check if the server supports it
+		final int capabilities = getSharedCapabilities();
+		if(!comms() || (capabilities & BetterStatsNetworkHandler.CAP_BATCH_STATS) == 0)
+			return false;
+		
+		//send the requests
+		for(int start = 0; start < gameProfiles.size(); start += BetterStatsNetworkHandler.MAX_BATCH_SIZE)
+		{
+			//write the profiles
+			final var batch = gameProfiles.subList(start, Math.min(start + BetterStatsNetworkHandler.MAX_BATCH_SIZE, gameProfiles.size()));
+			var data = new PacketByteBuf(Unpooled.buffer());
+			data.writeVarInt(capabilities);
+			data.writeVarInt(batch.size());
+			for(var gameProfile : batch)
+				BSNetworkProfile.writeGameProfile(data, gameProfile);
+			
+			//write the subset
+			data.writeBoolean(statSubset != null);
+			if(statSubset != null) BSStatsCodec.writeStatDictionary(data, statSubset);
+			
+			//send packet
+			var packet = new CustomPayloadC2SPacket(C2S_REQ_STATS_BATCH, data);
+			try { MinecraftClient.getInstance().getNetworkHandler().sendPacket(packet); }
+			catch(Exception e) { LOGGER.debug("Failed to send '" + C2S_REQ_STATS_BATCH + "' packet; " + e.getMessage()); }
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns true if the client can use {@link #c2s_subscribeStats(Collection)}, aka if
+	 * communicating with the server is allowed, and if the server supports
+	 * {@link BetterStatsNetworkHandler#CAP_STAT_SUBSCRIPTIONS}.
+	 */
+	public static boolean canSubscribeToStats()
+	{
+		return comms() && (getSharedCapabilities() & BetterStatsNetworkHandler.CAP_STAT_SUBSCRIPTIONS) != 0;
+	}
+	
+	/**
+	 * Tells the server to push the given {@link Stat}s to the client whenever they
+	 * change, replacing any previous subscriptions. Subscribing to no {@link Stat}s
+	 * unsubscribes from all of them. Nothing is sent if the subscriptions didn't change.
+	 * @param stats The {@link Stat}s to subscribe to.
+	 * @return False if the server doesn't support {@link BetterStatsNetworkHandler#CAP_STAT_SUBSCRIPTIONS}.
+	 */
+	public static boolean c2s_subscribeStats(Collection<Stat<?>> stats)
+	{
+		//check if the server supports it. unsubscribing is always
+		//allowed, as the server already knows about the subscriptions
+		final boolean unsubscribe = stats.isEmpty();
+		if(unsubscribe ? SubscribedStats == null : !canSubscribeToStats())
+			return unsubscribe;
+		
+		//check if the subscriptions changed
+		final var subscribed = new ObjectOpenHashSet<>(stats);
+		if(subscribed.equals(SubscribedStats)) return true;
+		SubscribedStats = unsubscribe ? null : subscribed;
+		
+		//create and send packet
+		var data = new PacketByteBuf(Unpooled.buffer());
+		BSStatsCodec.writeStatDictionary(data, subscribed);
+		var packet = new CustomPayloadC2SPacket(C2S_SUBSCRIBE_STATS, data);
+		try { MinecraftClient.getInstance().getNetworkHandler().sendPacket(packet); }
+		catch(Exception e) { LOGGER.debug("Failed to send '" + C2S_SUBSCRIBE_STATS + "' packet; " + e.getMessage()); }
+		return true;
+	}
+	
+	/**
+	 * Returns true if the client is subscribed to any {@link Stat}s, in which case
+	 * the server pushes them, and they don't have to be requested.
+	 */
+	public static boolean isSubscribedToStats() { return SubscribedStats != null; }
+	// --------------------------------------------------
 	public static boolean comms() { return (enableBSSProtocol || MinecraftClient.getInstance().isInSingleplayer()); }
 	public static boolean c2s_sendPrefs()
 	{
@@ -147,4 +596,22 @@ public final class BetterStatsClientNetworkHandler
 		return true;
 	}
 	// ==================================================
+	/**
+	 * A payload that is being received in fragments, see {@link #onReceivedStatsChunk(PacketByteBuf, Identifier)}.
+	 */
+	private static final class ChunkedPayload
+	{
+		public final Identifier channel;
+		public final PacketByteBuf buffer;
+		public final int fragmentCount;
+		public int nextFragment;
+		public ChunkedPayload(Identifier channel, int totalLength, int fragmentCount)
+		{
+			this.channel = channel;
+			this.buffer = new PacketByteBuf(Unpooled.buffer(totalLength, totalLength));
+			this.fragmentCount = fragmentCount;
+			this.nextFragment = 0;
+		}
+	}
+	// ==================================================
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+package io.github.thecsdev.betterstats.client.network;
+
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.mojang.authlib.GameProfile;
+
+import io.github.thecsdev.betterstats.network.BSNetworkProfile;
+import io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler;
+import io.github.thecsdev.betterstats.network.StatsEncodingPipeline;
+import net.minecraft.client.MinecraftClient;
+
+/**
+ * Keeps track of the stats requests the client sent to the server, and completes
+ * them once the requested stats arrive, so that everything asking for the stats
+ * of the same player at the same time shares a single request.<br/>
+ * <br/>
+ * Each caller gets its own copy of the shared {@link CompletableFuture}, so it can cancel
+ * it without affecting the others. Once every copy is cancelled, the request is forgotten.
+ * Requests that get no response within {@link #REQUEST_TIMEOUT} ticks fail with a
+ * {@link TimeoutException}, and requests for players the server can't find fail
+ * with a {@link NoSuchElementException}.<br/>
+ * <b>Note:</b> Only use this on the client thread. The futures are completed on it as well.
+ */
+public final class StatsRequestTracker
+{
+	// ==================================================
+	private StatsRequestTracker() {}
+	// --------------------------------------------------
+	/**
+	 * The time (in ticks) the server has to respond to a request in, after which it times out.
+	 * Receiving a fragment of large stats restarts the timer.<br/>
+	 * The server responds to the requests it can't handle within its
+	 * {@link StatsEncodingPipeline#DEADLINE}, so this is kept well above that, as requests
+	 * may also wait for the server's rate limits and offline stats lookups.
+	 */
+	public static int REQUEST_TIMEOUT = 200;
+	// --------------------------------------------------
+	private static final ArrayList<PendingRequest> PENDING = new ArrayList<>(); //in the order they were sent in
+	// ==================================================
+	/**
+	 * Asks the server for the stats of a given player, unless they were already asked
+	 * for, in which case the request that is already on its way is shared.
+	 * @param gameProfile The profile of the player whose stats to ask for.
+	 * @return A {@link CompletableFuture} that completes with the cached {@link BSNetworkProfile}
+	 * holding the received stats. It fails right away if the request could not be sent.
+	 */
+	public static CompletableFuture<BSNetworkProfile> request(GameProfile gameProfile)
+	{
+		//share the request if one is already on its way
+		Objects.requireNonNull(gameProfile);
+		for(var pending : PENDING)
+			if(BSNetworkProfile.compareGameProfiles(pending.gameProfile, gameProfile))
+				return pending.share();
+		
+		//else send a new one
+		if(!BetterStatsClientNetworkHandler.c2s_requestStats(gameProfile))
+			return CompletableFuture.failedFuture(new IllegalStateException("Unable to send the stats request."));
+		final var pending = new PendingRequest(gameProfile);
+		PENDING.add(pending);
+		return pending.share();
+	}
+	// --------------------------------------------------
+	/**
+	 * Completes the requests for a received {@link BSNetworkProfile}.
+	 * @param profile The cached {@link BSNetworkProfile} holding the received stats.
+	 */
+	static void onReceived(BSNetworkProfile profile)
+	{
+		//the futures are completed once the requests are removed, as the callers may make new ones
+		final var completed = new ArrayList<PendingRequest>();
+		PENDING.removeIf(pending -> BSNetworkProfile.compareGameProfiles(pending.gameProfile, profile.gameProfile) && completed.add(pending));
+		for(var pending : completed) pending.future.complete(profile);
+	}
+	
+	/**
+	 * Fails the requests for a player the server couldn't find.
+	 * @param requestedProfile The profile the server says it couldn't find. Servers that don't support
+	 * {@link BetterStatsNetworkHandler#CAP_NOT_FOUND_PROFILE} don't say which one it was, in which case
+	 * this is null, and the oldest request for another player's stats is failed instead, as those
+	 * servers respond to the requests in order.
+	 */
+	static void onPlayerNotFound(@Nullable GameProfile requestedProfile)
+	{
+		//the futures are failed once the requests are removed, as the callers may make new ones
+		final var failed = new ArrayList<PendingRequest>();
+		if(requestedProfile != null)
+			PENDING.removeIf(pending -> BSNetworkProfile.compareGameProfiles(pending.gameProfile, requestedProfile) && failed.add(pending));
+		else
+		{
+			final var localPlayer = MinecraftClient.getInstance().player;
+			for(var pending : PENDING)
+			{
+				if(localPlayer != null && BSNetworkProfile.compareGameProfiles(pending.gameProfile, localPlayer.getGameProfile()))
+					continue;
+				PENDING.remove(pending);
+				failed.add(pending);
+				break;
+			}
+		}
+		for(var pending : failed)
+			pending.future.completeExceptionally(new NoSuchElementException("Player not found: " + pending.gameProfile.getName()));
+	}
+	
+	/**
+	 * Restarts the timers of the requests, as some stats are still being received.
+	 * The server doesn't say whose stats they are until all of them arrive.
+	 */
+	static void onProgress() { for(var pending : PENDING) pending.ticksLeft = REQUEST_TIMEOUT; }
+	
+	/**
+	 * Fails the requests that timed out, and forgets the ones no one is waiting for. Called once per client tick.
+	 */
+	static void tick()
+	{
+		final var timedOut = new ArrayList<PendingRequest>();
+		PENDING.removeIf(pending -> pending.isAbandoned() || (--pending.ticksLeft <= 0 && timedOut.add(pending)));
+		for(var pending : timedOut) pending.future.completeExceptionally(new TimeoutException("The stats request timed out."));
+	}
+	
+	/**
+	 * Cancels all requests. Called when the client leaves the server.
+	 */
+	static void clear()
+	{
+		final var pending = new ArrayList<>(PENDING);
+		PENDING.clear();
+		for(var request : pending) request.future.completeExceptionally(new CancellationException());
+	}
+	// --------------------------------------------------
+	/**
+	 * Returns the number of requests that are waiting for a response.
+	 */
+	public static int getPendingCount() { return PENDING.size(); }
+	// ==================================================
+	/**
+	 * A request that was sent, and the copies of its {@link CompletableFuture} that were handed out.
+	 */
+	private static final class PendingRequest
+	{
+		// ----------------------------------------------
+		public final GameProfile gameProfile;
+		public final CompletableFuture<BSNetworkProfile> future;
+		public final ArrayList<CompletableFuture<BSNetworkProfile>> copies;
+		public int ticksLeft;
+		// ----------------------------------------------
+		public PendingRequest(GameProfile gameProfile)
+		{
+			this.gameProfile = gameProfile;
+			this.future = new CompletableFuture<>();
+			this.copies = new ArrayList<>();
+			this.ticksLeft = REQUEST_TIMEOUT;
+		}
+		// ----------------------------------------------
+		public CompletableFuture<BSNetworkProfile> share()
+		{
+			final var copy = this.future.copy();
+			this.copies.add(copy);
+			return copy;
+		}
+		
+		public boolean isAbandoned()
+		{
+			for(var copy : this.copies)
+				if(!copy.isCancelled()) return false;
+			return true;
+		}
+		// ----------------------------------------------
+	}
+	// ==================================================
+}
\ No newline at end of file
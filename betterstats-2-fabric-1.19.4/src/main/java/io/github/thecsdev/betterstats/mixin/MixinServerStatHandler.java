@@ -0,0 +1,25 @@
+package io.github.thecsdev.betterstats.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler;
+import io.github.thecsdev.betterstats.network.StatRevisionTracker;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.stat.ServerStatHandler;
+import net.minecraft.stat.Stat;
+
+@Mixin(ServerStatHandler.class)
+public abstract class MixinServerStatHandler
+{
+	@Inject(method = "setStat", at = @At("TAIL"))
+	public void onSetStat(PlayerEntity player, Stat<?> stat, int value, CallbackInfo callback)
+	{
+		StatRevisionTracker.onStatChanged((ServerStatHandler)(Object)this, stat);
+		if(player instanceof ServerPlayerEntity)
+			BetterStatsNetworkHandler.onStatChanged((ServerPlayerEntity)player, stat);
+	}
+}
\ No newline at end of file
@@ -8,12 +8,10 @@ import org.jetbrains.annotations.Nullable;
 import com.mojang.authlib.GameProfile;
 
 import io.github.thecsdev.tcdcommons.api.hooks.TCommonHooks;
-import io.netty.buffer.Unpooled;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.network.PacketByteBuf;
-import net.minecraft.network.packet.s2c.play.StatisticsS2CPacket;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.stat.Stat;
 import net.minecraft.stat.StatHandler;
@@ -34,6 +32,12 @@ public final class BSNetworkProfile
 	 * The statistics associated with the given player.
 	 */
 	public final StatHandler stats;
+	// --------------------------------------------------
+	/**
+	 * The {@link StatRevisionTracker} epoch and revision of the {@link #stats},
+	 * as sent by the server. Both are 0 when they are not known.
+	 */
+	public int statsEpoch, statsRevision;
 	// ==================================================
 	protected BSNetworkProfile(GameProfile profile, StatHandler stats)
 	{
@@ -121,43 +125,96 @@ public final class BSNetworkProfile
 	 * where it can then be read from using {@link #readPacket(PacketByteBuf)}.
 	 * @param pbb The {@link PacketByteBuf} to write to.
 	 */
-	public void writePacket(PacketByteBuf pbb)
+	public void writePacket(PacketByteBuf pbb) { writePacket(pbb, 0); }
+	
+	/**
+	 * Writes this entire {@link BSNetworkProfile} to a {@link PacketByteBuf}
+	 * where it can then be read from using {@link #readPacket(PacketByteBuf, int)}.
+	 * @param pbb The {@link PacketByteBuf} to write to.
+	 * @param capabilities The {@link BetterStatsNetworkHandler} capability flags
+	 * both sides agreed on. Use 0 for the legacy format.
+	 */
+	public void writePacket(PacketByteBuf pbb, int capabilities)
+	{
+		writePacket(pbb, capabilities, this.gameProfile, TCommonHooks.getStatHandlerStatMap(this.stats), false);
+	}
+	
+	/**
+	 * Writes a {@link BSNetworkProfile} made out of a {@link GameProfile} and
+	 * a {@link Stat} map to a {@link PacketByteBuf}, the same way
+	 * {@link #writePacket(PacketByteBuf, int)} would.
+	 * @param pbb The {@link PacketByteBuf} to write to.
+	 * @param capabilities The {@link BetterStatsNetworkHandler} capability flags
+	 * both sides agreed on. Use 0 for the legacy format.
+	 * @param gameProfile The {@link GameProfile} to write.
+	 * @param statMap The {@link Stat}s to write.
+	 * @param includeZeros Whether {@link Stat}s whose values are 0 have to be written as well.
+	 */
+	public static void writePacket(PacketByteBuf pbb, int capabilities,
+			@Nullable GameProfile gameProfile, Object2IntMap<Stat<?>> statMap, boolean includeZeros)
 	{
 		//write game profile
-		writeGameProfile(pbb, this.gameProfile);
-		
-		//write stats
-		var statsPbb = new PacketByteBuf(Unpooled.buffer());
-		new StatisticsS2CPacket(TCommonHooks.getStatHandlerStatMap(this.stats)).write(statsPbb);
+		writeGameProfile(pbb, gameProfile);
 		
-		pbb.writeInt(statsPbb.readableBytes());
-		pbb.writeBytes(statsPbb);
-		statsPbb.release(); //avoid memory leaks
+		//write stats, using the compact format if possible
+		if((capabilities & BetterStatsNetworkHandler.CAP_COMPACT_STATS) != 0)
+		{
+			BSStatsCodec.writeStats(pbb, statMap, includeZeros);
+			return;
+		}
+		//the legacy format has a length prefix, which is written once the length is known
+		final int lengthIndex = pbb.writerIndex();
+		pbb.writeInt(0);
+		BSStatsCodec.writeLegacyStats(pbb, statMap);
+		pbb.setInt(lengthIndex, pbb.writerIndex() - lengthIndex - 4);
 	}
 	
 	/**
 	 * Reads a {@link BSNetworkProfile} from a {@link PacketByteBuf}.
 	 * @param pbb The {@link PacketByteBuf} to read from.
 	 */
-	public static BSNetworkProfile readPacket(PacketByteBuf pbb)
+	public static BSNetworkProfile readPacket(PacketByteBuf pbb) { return readPacket(pbb, 0); }
+	
+	/**
+	 * Reads a {@link BSNetworkProfile} from a {@link PacketByteBuf}.
+	 * @param pbb The {@link PacketByteBuf} to read from.
+	 * @param capabilities The {@link BetterStatsNetworkHandler} capability flags
+	 * the {@link BSNetworkProfile} was written with.
+	 */
+	public static BSNetworkProfile readPacket(PacketByteBuf pbb, int capabilities)
 	{
 		//read game profile
 		GameProfile gameProfile = readGameProfile(pbb);
 		if(gameProfile == null) gameProfile = new GameProfile(new UUID(0, 0), null);
 		
 		//read statistics
-		int statsPbbSize = pbb.readInt();
-		PacketByteBuf statsPbb = new PacketByteBuf(pbb.readBytes(statsPbbSize));
-		
 		var stats = new StatHandler();
-		var statsMap = TCommonHooks.getStatHandlerStatMap(stats);
-		for(var sEntry : ((Object2IntMap<Stat<?>>) new StatisticsS2CPacket(statsPbb).getStatMap()).object2IntEntrySet())
-			statsMap.put(sEntry.getKey(), sEntry.getIntValue());
-		statsPbb.release(); //avoid memory leaks
+		readStats(pbb, capabilities, TCommonHooks.getStatHandlerStatMap(stats));
 		
 		//create and return
 		return new BSNetworkProfile(gameProfile, stats);
 	}
+	
+	/**
+	 * Reads the statistics of a {@link BSNetworkProfile} straight into a given {@link Stat} map,
+	 * so they don't have to be copied over from a new {@link StatHandler}. The {@link GameProfile}
+	 * that comes before them must be read first, using {@link #readGameProfile(PacketByteBuf)}.
+	 * @param pbb The {@link PacketByteBuf} to read from.
+	 * @param capabilities The {@link BetterStatsNetworkHandler} capability flags
+	 * the {@link BSNetworkProfile} was written with.
+	 * @param statMap The {@link Stat} map to put the read {@link Stat}s in.
+	 */
+	public static void readStats(PacketByteBuf pbb, int capabilities, Object2IntMap<Stat<?>> statMap)
+	{
+		if((capabilities & BetterStatsNetworkHandler.CAP_COMPACT_STATS) != 0)
+			BSStatsCodec.readStats(pbb, statMap);
+		else
+		{
+			//read from a slice, so the stats don't have to be copied out of the buffer
+			int statsPbbSize = pbb.readInt();
+			BSStatsCodec.readLegacyStats(new PacketByteBuf(pbb.readSlice(statsPbbSize)), statMap);
+		}
+	}
 	// --------------------------------------------------
 	public static void writeGameProfile(PacketByteBuf buf, @Nullable GameProfile gameProfile)
 	{
@@ -228,5 +285,19 @@ public final class BSNetworkProfile
 		var sMap = TCommonHooks.getStatHandlerStatMap(this.stats);
 		sMap.putAll(shMap);
 	}
+	
+	/**
+	 * Replaces the current {@link #stats} of this {@link BSNetworkProfile}
+	 * with the stats from a given {@link StatHandler}.
+	 * @param statHandler The stats to replace {@link #stats} with.
+	 */
+	public void setAllStats(StatHandler statHandler)
+	{
+		var shMap = TCommonHooks.getStatHandlerStatMap(statHandler);
+		var sMap = TCommonHooks.getStatHandlerStatMap(this.stats);
+		if(sMap == shMap) return;
+		sMap.clear();
+		sMap.putAll(shMap);
+	}
 	// ==================================================
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package io.github.thecsdev.betterstats.network;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.PacketByteBuf;
+
+/**
+ * Compresses and decompresses {@link BetterStatsNetworkHandler} payloads, when
+ * both sides support {@link BetterStatsNetworkHandler#CAP_COMPRESSION}.<br/>
+ * <br/>
+ * Only the part of a payload that comes after its header is compressed, and only
+ * when that part is larger than {@link BetterStatsNetworkHandler#COMPRESSION_THRESHOLD}.
+ * Such a payload body is written as follows:
+ * <pre>
+ * boolean compressed
+ * if compressed:
+ *   varint uncompressedLength
+ *   (the rest of the payload) deflated body
+ * else:
+ *   (the rest of the payload) body
+ * </pre>
+ * The {@link Deflater}s and {@link Inflater}s are reused, one per thread,
+ * instead of being created (and having their native memory allocated) per packet.<br/>
+ * <br/>
+ * The CPU time compression takes against the bytes it saves can be measured
+ * using the "benchmarkCompression" Gradle task (see the "dev" source set).
+ */
+public final class BSPayloadCompression
+{
+	// ==================================================
+	private BSPayloadCompression() {}
+	// --------------------------------------------------
+	/**
+	 * The largest uncompressed payload body size a client will accept.
+	 * Protects against payloads that claim to be larger than they could ever be.
+	 */
+	public static final int MAX_UNCOMPRESSED_LENGTH = 16 * 1024 * 1024;
+	// --------------------------------------------------
+	private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+	private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+	private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[8192]);
+	// ==================================================
+	/**
+	 * Reserves the "compressed" flag of a payload body. Call this right before
+	 * writing the body, and then call {@link #compressBody(PacketByteBuf, int, int)}
+	 * once the body is written.
+	 * @param pbb The payload being written.
+	 * @return The index of the "compressed" flag.
+	 */
+	public static int reserveBodyFlag(PacketByteBuf pbb)
+	{
+		final int flagIndex = pbb.writerIndex();
+		pbb.writeBoolean(false);
+		return flagIndex;
+	}
+	
+	/**
+	 * Compresses a payload's body, if it is larger than a given threshold.
+	 * @param pbb The payload, whose body was written after calling {@link #reserveBodyFlag(PacketByteBuf)}.
+	 * @param flagIndex The index returned by {@link #reserveBodyFlag(PacketByteBuf)}.
+	 * @param threshold The smallest body length that gets compressed.
+	 * @return The given payload if the body was not compressed, or a new payload
+	 * with the same header and the compressed body. In the latter case, the given
+	 * payload is released.
+	 */
+	public static PacketByteBuf compressBody(PacketByteBuf pbb, int flagIndex, int threshold)
+	{
+		//check the body length
+		final int bodyIndex = flagIndex + 1;
+		final int bodyLength = pbb.writerIndex() - bodyIndex;
+		if(bodyLength < threshold) return pbb;
+		
+		//copy the header, and write the compressed body after it
+		final var result = new PacketByteBuf(Unpooled.buffer(flagIndex + 6 + (bodyLength / 2)));
+		result.writeBytes(pbb, pbb.readerIndex(), flagIndex - pbb.readerIndex());
+		result.writeBoolean(true);
+		result.writeVarInt(bodyLength);
+		
+		final var deflater = DEFLATER.get();
+		final var buffer = BUFFER.get();
+		try
+		{
+			deflater.setInput(pbb.nioBuffer(bodyIndex, bodyLength));
+			deflater.finish();
+			while(!deflater.finished())
+			{
+				final int length = deflater.deflate(buffer);
+				result.writeBytes(buffer, 0, length);
+			}
+		}
+		finally { deflater.reset(); }
+		
+		pbb.release();
+		return result;
+	}
+	// --------------------------------------------------
+	/**
+	 * Reads a payload body written using {@link #compressBody(PacketByteBuf, int, int)}.
+	 * @param pbb The payload, whose header was already read.
+	 * @return The given payload if the body was not compressed, or a new buffer
+	 * holding the decompressed body.
+	 * @throws IllegalStateException If the body could not be decompressed.
+	 */
+	public static PacketByteBuf readBody(PacketByteBuf pbb)
+	{
+		//check if the body was compressed
+		if(!pbb.readBoolean()) return pbb;
+		final int length = pbb.readVarInt();
+		if(length < 0 || length > MAX_UNCOMPRESSED_LENGTH)
+			throw new IllegalStateException("Invalid uncompressed payload length: " + length);
+		
+		//decompress the body
+		final var inflater = INFLATER.get();
+		final byte[] body = new byte[length];
+		try
+		{
+			inflater.setInput(pbb.nioBuffer());
+			int offset = 0;
+			while(offset < length && !inflater.finished())
+			{
+				final int read = inflater.inflate(body, offset, length - offset);
+				if(read == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+				offset += read;
+			}
+			if(offset != length)
+				throw new IllegalStateException("Payload body is shorter than its uncompressed length.");
+		}
+		catch(DataFormatException e) { throw new IllegalStateException("Failed to decompress the payload body.", e); }
+		finally { inflater.reset(); }
+		
+		pbb.skipBytes(pbb.readableBytes());
+		return new PacketByteBuf(Unpooled.wrappedBuffer(body));
+	}
+	// ==================================================
+}
\ No newline at end of file
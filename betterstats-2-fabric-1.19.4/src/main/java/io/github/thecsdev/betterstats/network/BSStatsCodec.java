@@ -0,0 +1,337 @@
+package io.github.thecsdev.betterstats.network;
+
+import java.util.List;
+
+import io.github.thecsdev.betterstats.BetterStats;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectLinkedOpenHashMap;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.packet.s2c.play.StatisticsS2CPacket;
+import net.minecraft.registry.Registries;
+import net.minecraft.stat.Stat;
+import net.minecraft.stat.StatType;
+
+/**
+ * The {@link BetterStats}-native statistics encoding, used when both the server and
+ * the client support {@link BetterStatsNetworkHandler#CAP_COMPACT_STATS}.<br/>
+ * <br/>
+ * Unlike {@link StatisticsS2CPacket}, which writes the {@link StatType} and the entry
+ * IDs of every single {@link Stat}, this encoding groups the {@link Stat}s by their
+ * {@link StatType}s, sorts them by their entry raw IDs, and writes the differences
+ * between the raw IDs as var-ints. {@link Stat}s whose values are 0 are not written,
+ * unless specified otherwise.<br/>
+ * <br/>
+ * The layout is as follows:
+ * <pre>
+ * varint typeCount
+ * typeCount times:
+ *   varint statTypeRawId
+ *   varint entryCount
+ *   entryCount times:
+ *     varint entryRawIdDelta (from the previous entry's raw ID, or from 0)
+ *     varint value
+ * </pre>
+ */
+public final class BSStatsCodec
+{
+	// ==================================================
+	private BSStatsCodec() {}
+	// ==================================================
+	/**
+	 * Writes the non-zero entries of a {@link Stat} map to a {@link PacketByteBuf}.
+	 * @param pbb The {@link PacketByteBuf} to write to.
+	 * @param statMap The {@link Stat} map to write.
+	 */
+	public static void writeStats(PacketByteBuf pbb, Object2IntMap<Stat<?>> statMap) { writeStats(pbb, statMap, false); }
+	
+	/**
+	 * Writes the entries of a {@link Stat} map to a {@link PacketByteBuf}.
+	 * @param pbb The {@link PacketByteBuf} to write to.
+	 * @param statMap The {@link Stat} map to write.
+	 * @param includeZeros Whether to write the {@link Stat}s whose values are 0 as well.
+	 * Useful when sending changes, where a {@link Stat} could've changed to 0.
+	 */
+	public static void writeStats(PacketByteBuf pbb, Object2IntMap<Stat<?>> statMap, boolean includeZeros)
+	{
+		//group the stats by their types. each entry is packed into a long, with the raw id
+		//in the upper 32 bits and the value in the lower 32 bits, so that sorting the longs
+		//sorts the entries by their raw ids (raw ids are never negative)
+		final var groups = new Reference2ObjectLinkedOpenHashMap<StatType<?>, LongArrayList>();
+		for(var entry : Object2IntMaps.fastIterable(statMap))
+		{
+			final int value = entry.getIntValue();
+			if(value == 0 && !includeZeros) continue;
+			final Stat<?> stat = entry.getKey();
+			final int rawId = getEntryRawId(stat);
+			if(rawId < 0) continue;
+			
+			var group = groups.get(stat.getType());
+			if(group == null) groups.put(stat.getType(), group = new LongArrayList());
+			group.add(((long)rawId << 32) | (value & 0xFFFFFFFFL));
+		}
+		
+		//write the groups
+		pbb.writeVarInt(groups.size());
+		for(var group : groups.reference2ObjectEntrySet())
+		{
+			final var entries = group.getValue();
+			entries.unstableSort(null);
+			pbb.writeVarInt(Registries.STAT_TYPE.getRawId(group.getKey()));
+			pbb.writeVarInt(entries.size());
+			
+			int lastRawId = 0;
+			for(int i = 0; i < entries.size(); i++)
+			{
+				final long packed = entries.getLong(i);
+				final int rawId = (int)(packed >>> 32);
+				pbb.writeVarInt(rawId - lastRawId);
+				pbb.writeVarInt((int)packed);
+				lastRawId = rawId;
+			}
+		}
+	}
+	
+	/**
+	 * Reads the {@link Stat}s written using {@link #writeStats(PacketByteBuf, Object2IntMap)},
+	 * and puts them in a {@link Stat} map. Unknown {@link StatType}s and entries are skipped.
+	 * @param pbb The {@link PacketByteBuf} to read from.
+	 * @param statMap The {@link Stat} map to put the {@link Stat}s in.
+	 */
+	public static void readStats(PacketByteBuf pbb, Object2IntMap<Stat<?>> statMap)
+	{
+		final int typeCount = pbb.readVarInt();
+		for(int t = 0; t < typeCount; t++)
+		{
+			final StatType<?> type = Registries.STAT_TYPE.get(pbb.readVarInt());
+			final int entryCount = pbb.readVarInt();
+			
+			int rawId = 0;
+			for(int e = 0; e < entryCount; e++)
+			{
+				rawId += pbb.readVarInt();
+				final int value = pbb.readVarInt();
+				if(type == null) continue;
+				final Stat<?> stat = getStat(type, rawId);
+				if(stat != null) statMap.put(stat, value);
+			}
+		}
+	}
+	// --------------------------------------------------
+	/**
+	 * Writes a "stat dictionary", aka a list of {@link Stat}s without their values, that
+	 * multiple {@link Stat} maps can then refer to by index, using
+	 * {@link #writeDictionaryStats(PacketByteBuf, Object2IntMap, Object2IntMap)}. This way,
+	 * the {@link Stat}s that multiple players have in common only have to be written once.<br/>
+	 * The {@link Stat}s are grouped and sorted the same way {@link #writeStats(PacketByteBuf, Object2IntMap)}
+	 * does it, and the layout is as follows:
+	 * <pre>
+	 * varint typeCount
+	 * typeCount times:
+	 *   varint statTypeRawId
+	 *   varint entryCount
+	 *   entryCount times:
+	 *     varint entryRawIdDelta (from the previous entry's raw ID, or from 0)
+	 * </pre>
+	 * @param pbb The {@link PacketByteBuf} to write to.
+	 * @param stats The {@link Stat}s to write. Duplicates are written once.
+	 * @return The index of each written {@link Stat} in the dictionary.
+	 */
+	public static Object2IntMap<Stat<?>> writeStatDictionary(PacketByteBuf pbb, Iterable<Stat<?>> stats)
+	{
+		//group the stats by their types
+		final var groups = new Reference2ObjectLinkedOpenHashMap<StatType<?>, IntArrayList>();
+		final var added = new ObjectOpenHashSet<Stat<?>>();
+		for(var stat : stats)
+		{
+			final int rawId = getEntryRawId(stat);
+			if(rawId < 0 || !added.add(stat)) continue;
+			var group = groups.get(stat.getType());
+			if(group == null) groups.put(stat.getType(), group = new IntArrayList());
+			group.add(rawId);
+		}
+		
+		//write the groups, and index the stats in the order they are written
+		final var dictionary = new Object2IntOpenHashMap<Stat<?>>(added.size());
+		dictionary.defaultReturnValue(-1);
+		pbb.writeVarInt(groups.size());
+		for(var group : groups.reference2ObjectEntrySet())
+		{
+			final var type = group.getKey();
+			final var rawIds = group.getValue();
+			rawIds.unstableSort(null);
+			pbb.writeVarInt(Registries.STAT_TYPE.getRawId(type));
+			pbb.writeVarInt(rawIds.size());
+			
+			int lastRawId = 0;
+			for(int i = 0; i < rawIds.size(); i++)
+			{
+				final int rawId = rawIds.getInt(i);
+				pbb.writeVarInt(rawId - lastRawId);
+				dictionary.put(getStat(type, rawId), dictionary.size());
+				lastRawId = rawId;
+			}
+		}
+		return dictionary;
+	}
+	
+	/**
+	 * Reads a "stat dictionary" written using {@link #writeStatDictionary(PacketByteBuf, Iterable)}.
+	 * @param pbb The {@link PacketByteBuf} to read from.
+	 * @return The {@link Stat}s, in the order they were written. Unknown {@link Stat}s are
+	 * kept as null, so that the indexes stay the same as on the writing side.
+	 * @throws IllegalStateException If the dictionary claims to have more entries than it could.
+	 */
+	public static List<Stat<?>> readStatDictionary(PacketByteBuf pbb)
+	{
+		final var dictionary = new ObjectArrayList<Stat<?>>();
+		final int typeCount = pbb.readVarInt();
+		for(int t = 0; t < typeCount; t++)
+		{
+			final StatType<?> type = Registries.STAT_TYPE.get(pbb.readVarInt());
+			final int entryCount = pbb.readVarInt();
+			if(entryCount < 0 || entryCount > pbb.readableBytes()) //each entry takes at least one byte
+				throw new IllegalStateException("Invalid stat dictionary entry count: " + entryCount);
+			
+			int rawId = 0;
+			for(int e = 0; e < entryCount; e++)
+			{
+				rawId += pbb.readVarInt();
+				dictionary.add((type != null) ? getStat(type, rawId) : null);
+			}
+		}
+		return dictionary;
+	}
+	
+	/**
+	 * Writes the entries of a {@link Stat} map to a {@link PacketByteBuf}, using the indexes
+	 * of the {@link Stat}s in a "stat dictionary", instead of their {@link StatType}s and
+	 * entry raw IDs. {@link Stat}s that aren't in the dictionary are skipped. The layout is as follows:
+	 * <pre>
+	 * varint statCount
+	 * statCount times:
+	 *   varint dictionaryIndexDelta (from the previous stat's index, or from 0)
+	 *   varint value
+	 * </pre>
+	 * @param pbb The {@link PacketByteBuf} to write to.
+	 * @param dictionary The dictionary returned by {@link #writeStatDictionary(PacketByteBuf, Iterable)}.
+	 * @param statMap The {@link Stat} map to write.
+	 */
+	public static void writeDictionaryStats(PacketByteBuf pbb, Object2IntMap<Stat<?>> dictionary, Object2IntMap<Stat<?>> statMap)
+	{
+		//pack the entries into longs, same as writeStats does, but with the indexes instead of the raw ids
+		final var entries = new LongArrayList(statMap.size());
+		for(var entry : Object2IntMaps.fastIterable(statMap))
+		{
+			final int index = dictionary.getOrDefault(entry.getKey(), -1);
+			if(index < 0) continue;
+			entries.add(((long)index << 32) | (entry.getIntValue() & 0xFFFFFFFFL));
+		}
+		entries.unstableSort(null);
+		
+		//write the entries
+		pbb.writeVarInt(entries.size());
+		int lastIndex = 0;
+		for(int i = 0; i < entries.size(); i++)
+		{
+			final long packed = entries.getLong(i);
+			final int index = (int)(packed >>> 32);
+			pbb.writeVarInt(index - lastIndex);
+			pbb.writeVarInt((int)packed);
+			lastIndex = index;
+		}
+	}
+	
+	/**
+	 * Reads the {@link Stat}s written using {@link #writeDictionaryStats(PacketByteBuf, Object2IntMap, Object2IntMap)},
+	 * and puts them in a {@link Stat} map. Unknown {@link Stat}s are skipped.
+	 * @param pbb The {@link PacketByteBuf} to read from.
+	 * @param dictionary The dictionary returned by {@link #readStatDictionary(PacketByteBuf)}.
+	 * @param statMap The {@link Stat} map to put the {@link Stat}s in.
+	 */
+	public static void readDictionaryStats(PacketByteBuf pbb, List<Stat<?>> dictionary, Object2IntMap<Stat<?>> statMap)
+	{
+		final int statCount = pbb.readVarInt();
+		int index = 0;
+		for(int i = 0; i < statCount; i++)
+		{
+			index += pbb.readVarInt();
+			final int value = pbb.readVarInt();
+			if(index < 0 || index >= dictionary.size()) continue;
+			final Stat<?> stat = dictionary.get(index);
+			if(stat != null) statMap.put(stat, value);
+		}
+	}
+	// --------------------------------------------------
+	/**
+	 * Writes a {@link Stat} map to a {@link PacketByteBuf}, using the same layout
+	 * {@link StatisticsS2CPacket#write(PacketByteBuf)} does, which is the legacy
+	 * {@link BSNetworkProfile} format. The layout is as follows:
+	 * <pre>
+	 * varint statCount
+	 * statCount times:
+	 *   varint statTypeRawId
+	 *   varint entryRawId
+	 *   varint value
+	 * </pre>
+	 * Unlike creating a {@link StatisticsS2CPacket}, this does not copy the {@link Stat} map.
+	 * @param pbb The {@link PacketByteBuf} to write to.
+	 * @param statMap The {@link Stat} map to write.
+	 */
+	public static void writeLegacyStats(PacketByteBuf pbb, Object2IntMap<Stat<?>> statMap)
+	{
+		pbb.writeVarInt(statMap.size());
+		for(var entry : Object2IntMaps.fastIterable(statMap))
+		{
+			final Stat<?> stat = entry.getKey();
+			pbb.writeVarInt(Registries.STAT_TYPE.getRawId(stat.getType()));
+			pbb.writeVarInt(getEntryRawId(stat));
+			pbb.writeVarInt(entry.getIntValue());
+		}
+	}
+	
+	/**
+	 * Reads the {@link Stat}s written using {@link #writeLegacyStats(PacketByteBuf, Object2IntMap)}
+	 * (or {@link StatisticsS2CPacket#write(PacketByteBuf)}), and puts them in a {@link Stat} map,
+	 * without creating a {@link StatisticsS2CPacket}. Unknown {@link StatType}s and entries are skipped.
+	 * @param pbb The {@link PacketByteBuf} to read from.
+	 * @param statMap The {@link Stat} map to put the {@link Stat}s in.
+	 */
+	public static void readLegacyStats(PacketByteBuf pbb, Object2IntMap<Stat<?>> statMap)
+	{
+		final int statCount = pbb.readVarInt();
+		for(int i = 0; i < statCount; i++)
+		{
+			final StatType<?> type = Registries.STAT_TYPE.get(pbb.readVarInt());
+			final int rawId = pbb.readVarInt();
+			final int value = pbb.readVarInt();
+			if(type == null) continue;
+			final Stat<?> stat = getStat(type, rawId);
+			if(stat != null) statMap.put(stat, value);
+		}
+	}
+	// --------------------------------------------------
+	/**
+	 * Returns the raw ID of a {@link Stat}'s value in its {@link StatType}'s registry.
+	 */
+	private static <T> int getEntryRawId(Stat<T> stat)
+	{
+		return stat.getType().getRegistry().getRawId(stat.getValue());
+	}
+	
+	/**
+	 * Returns the {@link Stat} of a given {@link StatType} for the
+	 * registry entry with a given raw ID, or null if there is no such entry.
+	 */
+	private static <T> Stat<T> getStat(StatType<T> type, int rawId)
+	{
+		final T value = type.getRegistry().get(rawId);
+		return (value != null) ? type.getOrCreateStat(value) : null;
+	}
+	// ==================================================
+}
\ No newline at end of file
@@ -2,26 +2,39 @@ package io.github.thecsdev.betterstats.network;
 
 import static io.github.thecsdev.betterstats.BetterStats.LOGGER;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
+import org.jetbrains.annotations.Nullable;
+
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.mojang.authlib.GameProfile;
 
-import dev.architectury.event.EventResult;
-import dev.architectury.event.events.common.BlockEvent;
-import dev.architectury.event.events.common.EntityEvent;
 import dev.architectury.event.events.common.PlayerEvent;
+import dev.architectury.event.events.common.TickEvent;
 import dev.architectury.networking.NetworkManager;
 import dev.architectury.networking.NetworkManager.Side;
 import io.github.thecsdev.betterstats.BetterStats;
-import io.github.thecsdev.betterstats.util.StatUtils;
+import io.github.thecsdev.betterstats.network.OfflineStatsLookup.OfflineStats;
+import io.github.thecsdev.tcdcommons.api.hooks.TCommonHooks;
 import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
-import net.minecraft.entity.EntityType;
-import net.minecraft.item.Item;
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.network.packet.s2c.play.CustomPayloadS2CPacket;
 import net.minecraft.network.packet.s2c.play.StatisticsS2CPacket;
+import net.minecraft.server.PlayerManager;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.stat.Stat;
 import net.minecraft.stat.Stats;
@@ -41,11 +54,125 @@ public final class BetterStatsNetworkHandler
 	//
 	public static final Identifier C2S_REQ_STATS; //client asks the server for another player's stats
 	public static final Identifier S2C_STATS; //server sends the client another player's stats
+	public static final Identifier S2C_STATS_CHUNK; //server sends a fragment of a large S2C_STATS payload
+	//
+	public static final Identifier C2S_REQ_STATS_BATCH; //client asks the server for multiple players' stats
+	public static final Identifier S2C_STATS_BATCH; //server sends the client multiple players' stats
+	public static final Identifier S2C_STATS_BATCH_CHUNK; //server sends a fragment of a large S2C_STATS_BATCH payload
+	//
+	public static final Identifier C2S_SUBSCRIBE_STATS; //client tells the server which of their stats to push to them
+	// --------------------------------------------------
+	/**
+	 * The version of the {@link BetterStats} network protocol, sent to the clients
+	 * using {@link #S2C_I_HAVE_BSS}. Older versions of the mod did not send one.
+	 */
+	public static final int PROTOCOL_VERSION = 1;
+	
+	/**
+	 * Capability flag. When set, {@link BSNetworkProfile} statistics
+	 * are written using the {@link BSStatsCodec} format.
+	 */
+	public static final int CAP_COMPACT_STATS = 1;
+	
+	/**
+	 * Capability flag. When set, {@link #C2S_REQ_STATS} also contains the {@link StatRevisionTracker}
+	 * epoch and revision the client already has, and {@link #S2C_STATS} may only contain the
+	 * stats that changed since then.
+	 */
+	public static final int CAP_STAT_DELTAS = 2;
+	
+	/**
+	 * Capability flag. When set, large {@link #S2C_STATS} payloads may be compressed.
+	 * See {@link BSPayloadCompression}.
+	 */
+	public static final int CAP_COMPRESSION = 4;
+	
+	/**
+	 * Capability flag. When set, {@link #S2C_STATS} payloads that are too large to be sent
+	 * at once are sent in {@link #S2C_STATS_CHUNK} fragments. See {@link StatsChunkSender}.
+	 */
+	public static final int CAP_CHUNKED_STATS = 8;
+	
+	/**
+	 * Capability flag. When set, the client may use {@link #C2S_REQ_STATS_BATCH} to ask for
+	 * the stats of multiple players at once, which the server answers using {@link #S2C_STATS_BATCH}.
+	 */
+	public static final int CAP_BATCH_STATS = 16;
+	
+	/**
+	 * Capability flag. When set, the client may use {@link #C2S_SUBSCRIBE_STATS} to tell the server
+	 * which of their {@link Stat}s their HUD shows, and the server then pushes only those to the client
+	 * (using {@link StatisticsS2CPacket}s) whenever they change.
+	 */
+	public static final int CAP_STAT_SUBSCRIPTIONS = 32;
+	
+	/**
+	 * Capability flag. When set, {@link #S2C_STATS} payloads for players that weren't found
+	 * (or whose stats the server couldn't send) end with the profile the client asked for,
+	 * so the client can tell which of its requests failed.
+	 */
+	public static final int CAP_NOT_FOUND_PROFILE = 64;
+	
+	/**
+	 * The capability flags supported by this version of {@link BetterStats}.
+	 */
+	public static final int CAPABILITIES = CAP_COMPACT_STATS | CAP_STAT_DELTAS | CAP_COMPRESSION |
+			CAP_CHUNKED_STATS | CAP_BATCH_STATS | CAP_STAT_SUBSCRIPTIONS | CAP_NOT_FOUND_PROFILE;
+	// --------------------------------------------------
+	/**
+	 * When {@link #CAP_COMPRESSION} is used, {@link #S2C_STATS} payload
+	 * bodies that are at least this many bytes long are compressed.
+	 */
+	public static int COMPRESSION_THRESHOLD = 8192;
+	
+	/**
+	 * The max number of players a single {@link #C2S_REQ_STATS_BATCH} request may ask for.
+	 */
+	public static final int MAX_BATCH_SIZE = 64;
+	
+	/**
+	 * The max number of players that aren't online a single {@link #C2S_REQ_STATS_BATCH} request
+	 * may have looked up using {@link OfflineStatsLookup}. The rest of them are sent as not found.
+	 */
+	public static int MAX_BATCH_OFFLINE_LOOKUPS = 8;
+	
+	/**
+	 * Whether the stats of players that aren't online may be looked up in the world's
+	 * stats files. See {@link OfflineStatsLookup}.
+	 */
+	public static boolean OFFLINE_LOOKUP = true;
+	
+	/**
+	 * The max number of {@link Stat}s a player may subscribe to using {@link #C2S_SUBSCRIBE_STATS}.
+	 */
+	public static final int MAX_STAT_SUBSCRIPTIONS = 256;
 	// --------------------------------------------------
 	/**
 	 * A Map of player UUIDs and {@link PlayerPreferences} for the given players.
 	 */
 	private static final Cache<String, PlayerPreferences> PlayerPrefs;
+	
+	/**
+	 * The {@link Stat}s that changed for each player (by UUID) since the last
+	 * time the "stats HUD accuracy mode" updates were sent to them.
+	 */
+	private static final Object2ObjectLinkedOpenHashMap<UUID, ObjectOpenHashSet<Stat<?>>> PendingStatUpdates;
+	
+	/**
+	 * The {@link Stat}s each player (by UUID) subscribed to using {@link #C2S_SUBSCRIBE_STATS}.
+	 * Kept by UUID, so that the subscriptions outlive the {@link ServerPlayerEntity}, which is
+	 * replaced every time the player respawns, as clients don't subscribe again after that.
+	 */
+	private static final Object2ObjectOpenHashMap<UUID, ObjectOpenHashSet<Stat<?>>> StatSubscriptions;
+	
+	/**
+	 * The interval (in ticks) at which the "stats HUD accuracy mode" updates are sent to
+	 * the players. All updates made within that interval are sent in a single packet.
+	 */
+	public static int UPDATE_INTERVAL = 10;
+	
+	//the stats the server changes every tick, see getTickingStats()
+	private static @Nullable List<Stat<?>> TickingStats;
 	// ==================================================
 	protected BetterStatsNetworkHandler() {}
 	public static void init() {/*calls static*/}
@@ -62,8 +189,17 @@ public final class BetterStatsNetworkHandler
 		//
 		C2S_REQ_STATS = new Identifier(modId, "c2s_rs");
 		S2C_STATS = new Identifier(modId, "s2c_s");
+		S2C_STATS_CHUNK = new Identifier(modId, "s2c_sc");
+		//
+		C2S_REQ_STATS_BATCH = new Identifier(modId, "c2s_rsb");
+		S2C_STATS_BATCH = new Identifier(modId, "s2c_sb");
+		S2C_STATS_BATCH_CHUNK = new Identifier(modId, "s2c_sbc");
+		//
+		C2S_SUBSCRIBE_STATS = new Identifier(modId, "c2s_ss");
 		
 		//init the map that keeps track of privacy prefs.
+		PendingStatUpdates = new Object2ObjectLinkedOpenHashMap<>();
+		StatSubscriptions = new Object2ObjectOpenHashMap<>();
 		PlayerPrefs = CacheBuilder.newBuilder()
 				.expireAfterWrite(15, TimeUnit.MINUTES)
 				.build();
@@ -74,66 +210,24 @@ public final class BetterStatsNetworkHandler
 		//handle player prefs
 		PlayerEvent.PLAYER_JOIN.register(player -> s2c_iHaveBSS(player));
 		PlayerEvent.PLAYER_RESPAWN.register((player, endPortal) -> s2c_requestPrefs(player, false));
-		PlayerEvent.PLAYER_QUIT.register(player -> PlayerPrefs.invalidate(player.getUuidAsString()));
-		
-		//update the player on entity stat changes
-		EntityEvent.LIVING_DEATH.register((entity, deathSource) ->
+		PlayerEvent.PLAYER_QUIT.register(player ->
 		{
-			//handle player killing other entities
-			if(deathSource.getAttacker() instanceof ServerPlayerEntity)
-				s2c_updatePlayerOnMobStat((ServerPlayerEntity)deathSource.getAttacker(), entity.getType(), 1, 0);
-			//handle other entities killing players (do not use 'else')
-			if(entity instanceof ServerPlayerEntity && deathSource.getAttacker() != null)
-				s2c_updatePlayerOnMobStat((ServerPlayerEntity)entity, deathSource.getAttacker().getType(), 0, 1);
-			//pass
-			return EventResult.pass();
+			PlayerPrefs.invalidate(player.getUuidAsString());
+			StatsChunkSender.cancel(player);
+			EncodedProfileCache.invalidate(player);
+			StatsRequestLimiter.remove(player);
+			PendingStatUpdates.remove(player.getUuid());
+			StatSubscriptions.remove(player.getUuid());
 		});
 		
-		//update the player on block stat changes
-		BlockEvent.BREAK.register((world, blockPos, blockState, player, exp) ->
+		//handle deferred stats requests, and send the fragments of large stats payloads and the queued stat updates
+		TickEvent.SERVER_POST.register(server ->
 		{
-			s2c_updatePlayerOnItemStat(player, blockState.getBlock().asItem(), 1, 0, 0, 0, 0, 0);
-			return EventResult.pass();
+			StatsRequestLimiter.tick();
+			StatsChunkSender.tick(server.getPlayerManager());
+			if(server.getTicks() % Math.max(UPDATE_INTERVAL, 1) == 0)
+				s2c_sendQueuedStatUpdates(server.getPlayerManager());
 		});
-		BlockEvent.PLACE.register((world, blockPos, blockState, entity) ->
-		{
-			//check if player did it
-			if(!(entity instanceof ServerPlayerEntity))
-				return EventResult.pass();
-			//update and pass
-			s2c_updatePlayerOnItemStat((ServerPlayerEntity)entity, blockState.getBlock().asItem(), 0, 0, 1, 0, 0, 0);
-			return EventResult.pass();
-		});
-		//update player on crafting stats
-		PlayerEvent.CRAFT_ITEM.register((player, itemStack, inventory) ->
-		{
-			//make sure a server player did it
-			if(!(player instanceof ServerPlayerEntity))
-				return;
-			//update
-			s2c_updatePlayerOnItemStat((ServerPlayerEntity)player, itemStack.getItem(), 0, 1, 0, 0, 0, 0);
-		});
-		//update player on pick-up and drop stats
-		PlayerEvent.PICKUP_ITEM_POST.register((player, itemEntity, itemStack) ->
-		{
-			//make sure a server player did it
-			if(!(player instanceof ServerPlayerEntity))
-				return;
-			//update
-			var c = itemStack.getCount();
-			s2c_updatePlayerOnItemStat((ServerPlayerEntity)player, itemStack.getItem(), 0, 0, 0, 0, c, 0);
-		});
-		PlayerEvent.DROP_ITEM.register((player, itemEntity) ->
-		{
-			//make sure a server player did it
-			if(!(player instanceof ServerPlayerEntity))
-				return EventResult.pass();
-			//update
-			var c = itemEntity.getStack().getCount();
-			s2c_updatePlayerOnItemStat((ServerPlayerEntity)player, itemEntity.getStack().getItem(), 0, 0, 0, 0, 0, c);
-			return EventResult.pass();
-		});
-		//TODO - Track "use" for items
 	}
 	// --------------------------------------------------
 	private static void initNetworkReceivers()
@@ -152,25 +246,127 @@ public final class BetterStatsNetworkHandler
 		{
 			try
 			{
-				//get player and server
+				//get player
 				var player = (ServerPlayerEntity)context.getPlayer();
-				var playerMgr = player.getServer().getPlayerManager();
 				
 				//read target profile
 				var gameProfile = BSNetworkProfile.readGameProfile(payload);
-				if(gameProfile == null) { s2c_stats(player, null); return; }
 				
-				//find target player
-				ServerPlayerEntity target = null;
-				if(gameProfile.getId() != null)
-					target = playerMgr.getPlayer(gameProfile.getId());
-				else target = playerMgr.getPlayer(gameProfile.getName());
+				//read the capabilities the client wants to use (older clients don't send any)
+				int capabilities = -1, epoch = 0, revision = 0;
+				if(payload.isReadable())
+				{
+					capabilities = payload.readVarInt() & CAPABILITIES;
+					if((capabilities & CAP_STAT_DELTAS) != 0)
+					{
+						epoch = payload.readInt();
+						revision = payload.readVarInt();
+					}
+				}
 				
-				//send stats of target player
-				s2c_stats(player, target);
+				//handle the request on the server thread, once the rate limits allow it
+				final int fCapabilities = capabilities, fEpoch = epoch, fRevision = revision;
+				context.queue(() -> StatsRequestLimiter.submit(player, () ->
+						handleStatsRequest(player, gameProfile, fCapabilities, fEpoch, fRevision)));
 			}
 			catch(Exception e) { LOGGER.debug("Failed to handle '" + C2S_REQ_STATS + "' packet; " + e.getMessage()); }
 		});
+		//handle stat subscriptions
+		NetworkManager.registerReceiver(Side.C2S, C2S_SUBSCRIBE_STATS, (payload, context) ->
+		{
+			try
+			{
+				//read the stats the client subscribes to (replacing the
+				//previous ones), where no stats means unsubscribing
+				var player = (ServerPlayerEntity)context.getPlayer();
+				final var stats = new ObjectOpenHashSet<>(BSStatsCodec.readStatDictionary(payload));
+				stats.remove(null);
+				if(stats.size() > MAX_STAT_SUBSCRIPTIONS)
+					throw new IllegalStateException("Too many stat subscriptions: " + stats.size());
+				
+				//apply them on the server thread, and send the current values of the subscribed stats
+				context.queue(() ->
+				{
+					if(stats.isEmpty()) { StatSubscriptions.remove(player.getUuid()); return; }
+					StatSubscriptions.put(player.getUuid(), stats);
+					for(var stat : stats) queueStatUpdate(player, stat);
+				});
+			}
+			catch(Exception e) { LOGGER.debug("Failed to handle '" + C2S_SUBSCRIBE_STATS + "' packet; " + e.getMessage()); }
+		});
+		//handle batched stat requests
+		NetworkManager.registerReceiver(Side.C2S, C2S_REQ_STATS_BATCH, (payload, context) ->
+		{
+			try
+			{
+				//get player
+				var player = (ServerPlayerEntity)context.getPlayer();
+				
+				//read the capabilities, and the profiles of the players whose stats to send
+				final int capabilities = payload.readVarInt() & CAPABILITIES;
+				final int profileCount = payload.readVarInt();
+				if(profileCount < 0 || profileCount > MAX_BATCH_SIZE)
+					throw new IllegalStateException("Invalid batch size: " + profileCount);
+				final var gameProfiles = new ArrayList<GameProfile>(profileCount);
+				for(int i = 0; i < profileCount; i++)
+					gameProfiles.add(BSNetworkProfile.readGameProfile(payload));
+				
+				//read the stats the client wants (or all of them, if there is no subset)
+				final var statSubset = payload.readBoolean() ? BSStatsCodec.readStatDictionary(payload) : null;
+				
+				//handle the request on the server thread, once the rate limits allow it
+				//(larger batches take more tokens, as they are more expensive to handle)
+				context.queue(() -> StatsRequestLimiter.submit(player, StatsRequestLimiter.getBatchCost(profileCount), () ->
+						s2c_statsBatch(player, gameProfiles, statSubset, capabilities)));
+			}
+			catch(Exception e) { LOGGER.debug("Failed to handle '" + C2S_REQ_STATS_BATCH + "' packet; " + e.getMessage()); }
+		});
+	}
+	
+	/**
+	 * Handles a {@link #C2S_REQ_STATS} request, by sending the client the stats of the player they asked for.
+	 * @param player The player that made the request.
+	 * @param gameProfile The profile of the player whose stats to send.
+	 * @param capabilities The capabilities the client asked for, or -1 if the client didn't send any.
+	 * @param epoch The {@link StatRevisionTracker} epoch the client has, or 0.
+	 * @param revision The {@link StatRevisionTracker} revision the client has, or 0.
+	 */
+	private static void handleStatsRequest(ServerPlayerEntity player, @Nullable GameProfile gameProfile,
+			int capabilities, int epoch, int revision)
+	{
+		//find target player
+		var server = player.getServer();
+		var target = findPlayer(server.getPlayerManager(), gameProfile);
+		
+		//if they aren't online, look them up in the world's stats files
+		//(off-thread), and send their stats once that's done
+		if(target == null && gameProfile != null && OFFLINE_LOOKUP)
+		{
+			OfflineStatsLookup.lookup(server, gameProfile).thenAcceptAsync(offlineStats ->
+			{
+				if(player.isDisconnected()) return;
+				else if(offlineStats != null) s2c_offlineStats(player, offlineStats, capabilities);
+				else s2c_statsUnavailable(player, gameProfile, capabilities);
+			}, server);
+			return;
+		}
+		
+		//send stats of target player
+		if(target == null) s2c_statsUnavailable(player, gameProfile, capabilities);
+		else if(capabilities < 0) s2c_stats(player, target);
+		else s2c_stats(player, target, capabilities, epoch, revision);
+	}
+	
+	/**
+	 * Finds an online player using their {@link GameProfile}'s
+	 * UUID, or their name if the UUID is not present.
+	 */
+	private static @Nullable ServerPlayerEntity findPlayer(PlayerManager playerMgr, @Nullable GameProfile gameProfile)
+	{
+		if(gameProfile == null) return null;
+		else if(gameProfile.getId() != null) return playerMgr.getPlayer(gameProfile.getId());
+		else if(gameProfile.getName() != null) return playerMgr.getPlayer(gameProfile.getName());
+		else return null;
 	}
 	// ==================================================
 	/**
@@ -185,13 +381,16 @@ public final class BetterStatsNetworkHandler
 		if(get == null) PlayerPrefs.put(uuid, get = new PlayerPreferences());
 		return get;
 	}
-
+	
 	/**
-	 * Tell a client the server has BSS installed.
+	 * Tell a client the server has BSS installed, alongside
+	 * the {@link #PROTOCOL_VERSION} and the {@link #CAPABILITIES}.
 	 */
 	public static void s2c_iHaveBSS(ServerPlayerEntity player)
 	{
-		var data = new PacketByteBuf(Unpooled.EMPTY_BUFFER);
+		var data = new PacketByteBuf(Unpooled.buffer());
+		data.writeVarInt(PROTOCOL_VERSION);
+		data.writeVarInt(CAPABILITIES);
 		try { player.networkHandler.sendPacket(new CustomPayloadS2CPacket(S2C_I_HAVE_BSS, data)); }
 		catch(Exception e) { LOGGER.debug("Failed to send '" + S2C_I_HAVE_BSS + "' packet; " + e.getMessage()); }
 	}
@@ -213,79 +412,463 @@ public final class BetterStatsNetworkHandler
 		catch(Exception e) { LOGGER.debug("Failed to send '" + S2C_REQ_PREFS + "' packet; " + e.getMessage()); }
 	}
 	// --------------------------------------------------
-	public static void s2c_updatePlayerOnItemStat(ServerPlayerEntity player, Item item,
-			int m, int c, int u, int b, int pu, int d)
+	/**
+	 * Called whenever a {@link Stat} of a {@link ServerPlayerEntity} is set, aka
+	 * when the server-side stat handler changes. Queues the change for players
+	 * that subscribed to it, or that use the "stats HUD accuracy mode".
+	 */
+	public static void onStatChanged(ServerPlayerEntity player, Stat<?> stat)
 	{
-		//check for player prefs
+		//players that subscribed to specific stats are only sent those
+		var subscribed = StatSubscriptions.get(player.getUuid());
+		if(subscribed != null)
+		{
+			if(subscribed.contains(stat)) queueStatUpdate(player, stat);
+			return;
+		}
+		
+		//the stats that change every tick don't cause updates on their own, or every
+		//player would be sent one every time. they're sent alongside the other changes
+		if(isTickingStat(stat)) return;
+		
+		//check for player prefs (and only ask for them once, instead of on every change)
 		var prefs = PlayerPrefs.getIfPresent(player.getUuidAsString());
-		if(prefs == null) { s2c_requestPrefs(player, false); return; }
+		if(prefs == null) { getOrCreatePlayerPrefs(player); s2c_requestPrefs(player, true); return; }
 		else if(!prefs.betterStatsInstalled || !prefs.statsHudAccuracyMode) return;
-		//cooldown system to prevent spam
-		var curr = System.currentTimeMillis();
-		if(curr - prefs._lastItemUpdate < PlayerPreferences._updateCooldown) return;
-		prefs._lastItemUpdate = curr;
-		//obtain stats
-		var iStats = new StatUtils.StatUtilsItemStat(player.getStatHandler(), item);
-		//create packet
-		var object2int = new Object2IntOpenHashMap<Stat<?>>();
-		if(m > 0 && iStats.block != null) object2int.put(Stats.MINED.getOrCreateStat(iStats.block), iStats.sMined + m);
-		if(c > 0) object2int.put(Stats.CRAFTED.getOrCreateStat(iStats.item), iStats.sCrafted + c);
-		if(u > 0) object2int.put(Stats.USED.getOrCreateStat(iStats.item), iStats.sUsed + u);
-		if(b > 0) object2int.put(Stats.BROKEN.getOrCreateStat(iStats.item), iStats.sBroken + b);
-		if(pu > 0) object2int.put(Stats.PICKED_UP.getOrCreateStat(iStats.item), iStats.sPickedUp + pu);
-		if(d > 0) object2int.put(Stats.DROPPED.getOrCreateStat(iStats.item), iStats.sDropped + d);
-		var packet = new StatisticsS2CPacket(object2int);
-		//send packet
-		try { player.networkHandler.sendPacket(packet); }
-		catch(Exception e) { LOGGER.debug("Failed to send 'StatisticsS2CPacket' packet; " + e.getMessage()); }
+		//queue the change (the value is read once the updates are sent)
+		queueStatUpdate(player, stat);
 	}
 	
-	public static void s2c_updatePlayerOnMobStat(ServerPlayerEntity player, EntityType<?> entityType,
-			int k, int d)
+	/**
+	 * Returns the {@link Stats#CUSTOM} {@link Stat}s the server changes every tick, for every player.
+	 */
+	public static List<Stat<?>> getTickingStats()
 	{
-		//check for player prefs
-		var prefs = PlayerPrefs.getIfPresent(player.getUuidAsString());
-		if(prefs == null) { s2c_requestPrefs(player, false); return; }
-		else if(!prefs.betterStatsInstalled || !prefs.statsHudAccuracyMode) return;
-		//cooldown system to prevent spam
-		var curr = System.currentTimeMillis();
-		if(curr - prefs._lastMobUpdate < PlayerPreferences._updateCooldown) return;
-		prefs._lastMobUpdate = curr;
-		//obtain stats
-		var eStats = new StatUtils.StatUtilsMobStat(player.getStatHandler(), entityType);
-		//create packet
-		var obj2int = new Object2IntOpenHashMap<Stat<?>>();
-		if(k > 0) obj2int.put(Stats.KILLED.getOrCreateStat(entityType), eStats.killed + k);
-		if(d > 0) obj2int.put(Stats.KILLED_BY.getOrCreateStat(entityType), eStats.killedBy + d);
-		var packet = new StatisticsS2CPacket(obj2int);
-		//send packet
-		try { player.networkHandler.sendPacket(packet); }
-		catch(Exception e) { LOGGER.debug("Failed to send 'StatisticsS2CPacket' packet; " + e.getMessage()); }
+		//created lazily, as the stats can't be created before the registries are
+		if(TickingStats == null)
+			TickingStats = List.of(
+					Stats.CUSTOM.getOrCreateStat(Stats.PLAY_TIME),
+					Stats.CUSTOM.getOrCreateStat(Stats.TOTAL_WORLD_TIME),
+					Stats.CUSTOM.getOrCreateStat(Stats.TIME_SINCE_DEATH),
+					Stats.CUSTOM.getOrCreateStat(Stats.TIME_SINCE_REST));
+		return TickingStats;
+	}
+	
+	/**
+	 * Returns true if a given {@link Stat} is one of the {@link #getTickingStats()}.
+	 */
+	public static boolean isTickingStat(Stat<?> stat) { return stat.getType() == Stats.CUSTOM && getTickingStats().contains(stat); }
+	
+	/**
+	 * Queues a {@link Stat} update for a given player. Queued updates are
+	 * sent every {@link #UPDATE_INTERVAL} ticks, all in a single packet.
+	 */
+	private static void queueStatUpdate(ServerPlayerEntity player, Stat<?> stat)
+	{
+		var pending = PendingStatUpdates.get(player.getUuid());
+		if(pending == null) PendingStatUpdates.put(player.getUuid(), pending = new ObjectOpenHashSet<>());
+		pending.add(stat);
+	}
+	
+	/**
+	 * Sends the queued {@link Stat} updates to each player, as a single
+	 * {@link StatisticsS2CPacket} holding the {@link Stat}s' current values.
+	 */
+	private static void s2c_sendQueuedStatUpdates(PlayerManager playerMgr)
+	{
+		for(var entry : PendingStatUpdates.entrySet())
+		{
+			//read the current values (from the player's current entity, as they may have respawned)
+			var player = playerMgr.getPlayer(entry.getKey());
+			if(player == null) continue;
+			var statHandler = player.getStatHandler();
+			var object2int = new Object2IntOpenHashMap<Stat<?>>(entry.getValue().size());
+			for(var stat : entry.getValue())
+				object2int.put(stat, statHandler.getStat(stat));
+			//players that didn't subscribe to specific stats are also sent the ones that change every tick
+			if(!StatSubscriptions.containsKey(entry.getKey()))
+				for(var stat : getTickingStats())
+					object2int.put(stat, statHandler.getStat(stat));
+			//send packet
+			try { player.networkHandler.sendPacket(new StatisticsS2CPacket(object2int)); }
+			catch(Exception e) { LOGGER.debug("Failed to send 'StatisticsS2CPacket' packet; " + e.getMessage()); }
+		}
+		PendingStatUpdates.clear();
 	}
 	// --------------------------------------------------
+	/**
+	 * Sends the stats of a given player to a client, using the legacy format.
+	 */
 	public static void s2c_stats(ServerPlayerEntity player, ServerPlayerEntity whoseStatsToSend)
 	{
-		//obtain data, and write it to a packet byte-buffer
-		var bsnp = BSNetworkProfile.ofServerPlayer(whoseStatsToSend);
+		s2c_fullStats(player, whoseStatsToSend, -1);
+	}
+	
+	/**
+	 * Sends the stats of a given player to a client, using the capabilities the client asked for.
+	 * The packet starts with the capability flags that were used, followed by the
+	 * {@link #CAP_STAT_DELTAS} header (if used), and then the {@link BSNetworkProfile}
+	 * (compressed using {@link BSPayloadCompression}, if {@link #CAP_COMPRESSION} is used).
+	 * @param capabilities The capabilities the client asked for.
+	 * @param epoch The {@link StatRevisionTracker} epoch the client has, or 0.
+	 * @param revision The {@link StatRevisionTracker} revision the client has, or 0.
+	 */
+	public static void s2c_stats(ServerPlayerEntity player, ServerPlayerEntity whoseStatsToSend,
+			int capabilities, int epoch, int revision)
+	{
+		//if the client wants deltas, try sending only the changes since the client's revision
+		if((capabilities & CAP_STAT_DELTAS) != 0 && whoseStatsToSend != null)
+		{
+			//obtain the changes (obtain the revision first, so any
+			//changes made in the meantime are sent again the next time)
+			var statHandler = whoseStatsToSend.getStatHandler();
+			var history = StatRevisionTracker.getHistory(statHandler);
+			int currentEpoch = history.getEpoch(), currentRevision = history.getRevision();
+			var changes = history.getChangesSince(statHandler, epoch, revision);
+			
+			//if the changes are known, send them (the changes are a
+			//snapshot already, so they can be encoded off-thread)
+			if(changes != null)
+			{
+				var gameProfile = whoseStatsToSend.getGameProfile();
+				StatsEncodingPipeline.submit(player, () ->
+				{
+					var data = new PacketByteBuf(Unpooled.buffer());
+					data.writeVarInt(capabilities);
+					data.writeBoolean(true); //isDelta
+					data.writeInt(currentEpoch);
+					data.writeVarInt(currentRevision);
+					int flagIndex = ((capabilities & CAP_COMPRESSION) != 0) ? BSPayloadCompression.reserveBodyFlag(data) : -1;
+					BSNetworkProfile.writePacket(data, capabilities, gameProfile, changes, true);
+					if(flagIndex >= 0) data = BSPayloadCompression.compressBody(data, flagIndex, COMPRESSION_THRESHOLD);
+					return data;
+				},
+				data -> s2c_stats(player, data, capabilities),
+				() -> s2c_statsUnavailable(player, gameProfile, capabilities));
+				return;
+			}
+		}
+		
+		//else send a full snapshot
+		s2c_fullStats(player, whoseStatsToSend, capabilities);
+	}
+	
+	/**
+	 * Sends a full snapshot of a given player's stats to a client. Those are the same for
+	 * every client that uses the same capabilities, so they are cached. When they aren't,
+	 * the stats are copied on the server thread, and encoded using the {@link StatsEncodingPipeline}.
+	 * @param capabilities The capabilities to encode the payload with, or -1 for the legacy format.
+	 */
+	private static void s2c_fullStats(ServerPlayerEntity player, @Nullable ServerPlayerEntity whoseStatsToSend, int capabilities)
+	{
+		//use the cached payload if there is one
+		if(whoseStatsToSend != null)
+		{
+			var cached = EncodedProfileCache.get(whoseStatsToSend, capabilities);
+			if(cached != null) { s2c_stats(player, cached, capabilities); return; }
+		}
+		
+		//take a snapshot of the stats
+		final GameProfile gameProfile;
+		final Object2IntMap<Stat<?>> statMap;
+		final int epoch, revision;
+		if(whoseStatsToSend != null)
+		{
+			var statHandler = whoseStatsToSend.getStatHandler();
+			var history = StatRevisionTracker.getHistory(statHandler);
+			gameProfile = whoseStatsToSend.getGameProfile();
+			statMap = new Object2IntOpenHashMap<>(TCommonHooks.getStatHandlerStatMap(statHandler));
+			epoch = history.getEpoch();
+			revision = history.getRevision();
+		}
+		else
+		{
+			gameProfile = null;
+			statMap = Object2IntMaps.emptyMap();
+			epoch = revision = 0;
+		}
+		
+		//encode and cache it off-thread, and then send it
+		StatsEncodingPipeline.submit(player, () ->
+		{
+			var data = encodeFullStats(gameProfile, statMap, capabilities, epoch, revision);
+			if(whoseStatsToSend == null) return data;
+			return EncodedProfileCache.put(whoseStatsToSend, capabilities, epoch, revision, data);
+		},
+		data -> s2c_stats(player, data, capabilities),
+		() -> s2c_statsUnavailable(player, gameProfile, capabilities));
+	}
+	
+	/**
+	 * Sends the stats of a player that isn't online to a client, as a full snapshot.
+	 * @param offlineStats The stats, as looked up using {@link OfflineStatsLookup}.
+	 * @param capabilities The capabilities to encode the payload with, or -1 for the legacy format.
+	 */
+	public static void s2c_offlineStats(ServerPlayerEntity player, OfflineStats offlineStats, int capabilities)
+	{
+		//the offline stats don't change, so their payloads are kept, and
+		//they have no revision history, so the epoch and revision are 0
+		StatsEncodingPipeline.submit(player, () -> offlineStats.getOrEncode(capabilities, () ->
+				encodeFullStats(offlineStats.gameProfile, offlineStats.statMap, capabilities, 0, 0)),
+		data -> s2c_stats(player, data, capabilities),
+		() -> s2c_statsUnavailable(player, offlineStats.gameProfile, capabilities));
+	}
+	
+	/**
+	 * Tells a client that the stats they asked for can't be sent, either because there is no such
+	 * player, or because the server is too busy to encode them (see {@link StatsEncodingPipeline}).
+	 * Uses the "player not found" response, which is encoded right away, as it has no stats in it.
+	 * If the client supports {@link #CAP_NOT_FOUND_PROFILE}, the response ends with the requested profile.
+	 * @param requestedProfile The profile of the player the client asked for.
+	 * @param capabilities The capabilities the client asked for, or -1 for the legacy format.
+	 */
+	private static void s2c_statsUnavailable(ServerPlayerEntity player, @Nullable GameProfile requestedProfile, int capabilities)
+	{
+		//there's nothing to compress here, and leaving the body uncompressed lets the profile be added after it
+		if(capabilities >= 0) capabilities &= ~CAP_COMPRESSION;
+		var data = encodeFullStats(null, Object2IntMaps.emptyMap(), capabilities, 0, 0);
+		if(capabilities >= 0 && (capabilities & CAP_NOT_FOUND_PROFILE) != 0)
+			BSNetworkProfile.writeGameProfile(data, requestedProfile);
+		s2c_stats(player, data, capabilities);
+	}
+	
+	/**
+	 * Encodes a {@link #S2C_STATS} payload holding a full snapshot of a given player's stats.
+	 * Only reads the given arguments, so it is safe to call off-thread.
+	 * @param gameProfile The profile of the player whose stats to encode, or null if there is no such player.
+	 * @param statMap A snapshot of the player's stats.
+	 * @param capabilities The capabilities to encode the payload with, or -1 for the legacy format.
+	 * @param epoch The {@link StatRevisionTracker} epoch of the snapshot, or 0.
+	 * @param revision The {@link StatRevisionTracker} revision of the snapshot, or 0.
+	 */
+	private static PacketByteBuf encodeFullStats(@Nullable GameProfile gameProfile, Object2IntMap<Stat<?>> statMap,
+			int capabilities, int epoch, int revision)
+	{
 		var data = new PacketByteBuf(Unpooled.buffer());
-		bsnp.writePacket(data);
+		if(capabilities < 0) { BSNetworkProfile.writePacket(data, 0, gameProfile, statMap, false); return data; }
+		
+		//write the header
+		data.writeVarInt(capabilities);
+		if((capabilities & CAP_STAT_DELTAS) != 0)
+		{
+			data.writeBoolean(false); //isDelta
+			data.writeInt(epoch);
+			data.writeVarInt(revision);
+		}
+		
+		//write the profile
+		int flagIndex = ((capabilities & CAP_COMPRESSION) != 0) ? BSPayloadCompression.reserveBodyFlag(data) : -1;
+		BSNetworkProfile.writePacket(data, capabilities, gameProfile, statMap, false);
+		if(flagIndex >= 0) data = BSPayloadCompression.compressBody(data, flagIndex, COMPRESSION_THRESHOLD);
+		return data;
+	}
+	
+	private static void s2c_stats(ServerPlayerEntity player, PacketByteBuf data, int capabilities)
+	{
+		s2c_stats(player, data, capabilities >= 0 && (capabilities & CAP_CHUNKED_STATS) != 0);
+	}
+	
+	private static void s2c_stats(ServerPlayerEntity player, PacketByteBuf data, boolean allowChunks)
+	{
+		sendPayload(player, S2C_STATS, S2C_STATS_CHUNK, data, allowChunks);
+	}
+	// --------------------------------------------------
+	/**
+	 * Sends the stats of multiple players to a client in a single {@link #S2C_STATS_BATCH} payload.
+	 * The stats are written against a shared "stat dictionary" (see {@link BSStatsCodec#writeStatDictionary(PacketByteBuf, Iterable)}),
+	 * so that the {@link Stat}s the players have in common are only written once. The payload is written as follows:
+	 * <pre>
+	 * varint capabilities
+	 * boolean isSubset
+	 * (if CAP_COMPRESSION) the BSPayloadCompression body flag
+	 * stat dictionary
+	 * varint profileCount
+	 * profileCount times:
+	 *   boolean found
+	 *   game profile (the requested one, if not found)
+	 *   if found:
+	 *     int epoch (0 for subsets)
+	 *     varint revision (0 for subsets)
+	 *     dictionary stats
+	 * </pre>
+	 * @param gameProfiles The profiles of the players whose stats to send.
+	 * @param statSubset The {@link Stat}s to send, or null to send all of them.
+	 * @param capabilities The capabilities the client asked for.
+	 */
+	public static void s2c_statsBatch(ServerPlayerEntity player, List<GameProfile> gameProfiles,
+			@Nullable Collection<Stat<?>> statSubset, int capabilities)
+	{
+		//look up the players that aren't online in the world's stats files first (off-thread),
+		//but only so many of them, so a single batch can't fill up the lookup queue
+		var server = player.getServer();
+		var playerMgr = server.getPlayerManager();
+		final var offlineLookups = new ArrayList<CompletableFuture<OfflineStats>>(gameProfiles.size());
+		int lookupsLeft = MAX_BATCH_OFFLINE_LOOKUPS;
+		for(var gameProfile : gameProfiles)
+		{
+			if(!OFFLINE_LOOKUP || gameProfile == null || lookupsLeft <= 0 || findPlayer(playerMgr, gameProfile) != null)
+				offlineLookups.add(null);
+			else { offlineLookups.add(OfflineStatsLookup.lookup(server, gameProfile)); lookupsLeft--; }
+		}
+		
+		//and send the stats once that's done
+		var pending = offlineLookups.stream().filter(Objects::nonNull).toArray(CompletableFuture[]::new);
+		if(pending.length == 0) s2c_statsBatch(player, gameProfiles, offlineLookups, statSubset, capabilities);
+		else CompletableFuture.allOf(pending).thenRunAsync(() ->
+		{
+			if(!player.isDisconnected())
+				s2c_statsBatch(player, gameProfiles, offlineLookups, statSubset, capabilities);
+		}, server);
+	}
+	
+	private static void s2c_statsBatch(ServerPlayerEntity player, List<GameProfile> gameProfiles,
+			List<CompletableFuture<OfflineStats>> offlineLookups, @Nullable Collection<Stat<?>> statSubset, int capabilities)
+	{
+		//take a snapshot of each player's stats
+		var playerMgr = player.getServer().getPlayerManager();
+		final boolean isSubset = (statSubset != null);
+		final var snapshots = new ArrayList<StatsSnapshot>(gameProfiles.size());
+		for(int i = 0; i < gameProfiles.size(); i++)
+		{
+			var gameProfile = gameProfiles.get(i);
+			var target = findPlayer(playerMgr, gameProfile);
+			if(target != null)
+			{
+				//copy all the stats, or only the ones in the subset
+				var statHandler = target.getStatHandler();
+				var copy = copyStats(TCommonHooks.getStatHandlerStatMap(statHandler), statSubset);
+				var history = StatRevisionTracker.getHistory(statHandler);
+				snapshots.add(isSubset ?
+						new StatsSnapshot(target.getGameProfile(), copy, 0, 0) :
+						new StatsSnapshot(target.getGameProfile(), copy, history.getEpoch(), history.getRevision()));
+				continue;
+			}
+			
+			//players that aren't online are sent using their offline stats (which have no revision
+			//history, and are never modified, so they only have to be copied for subsets),
+			//or as not found if they don't have any
+			var offlineLookup = offlineLookups.get(i);
+			var offlineStats = (offlineLookup != null) ? offlineLookup.getNow(null) : null;
+			if(offlineStats == null) { snapshots.add(new StatsSnapshot(gameProfile, null, 0, 0)); continue; }
+			var statMap = isSubset ? copyStats(offlineStats.statMap, statSubset) : offlineStats.statMap;
+			snapshots.add(new StatsSnapshot(offlineStats.gameProfile, statMap, 0, 0));
+		}
+		
+		//encode it off-thread, and then send it. if that can't be done, all of the players are sent as not found
+		StatsEncodingPipeline.submit(player, () -> encodeStatsBatch(snapshots, isSubset, capabilities),
+		data -> s2c_statsBatch(player, data, capabilities),
+		() ->
+		{
+			var notFound = new ArrayList<StatsSnapshot>(gameProfiles.size());
+			for(var gameProfile : gameProfiles) notFound.add(new StatsSnapshot(gameProfile, null, 0, 0));
+			s2c_statsBatch(player, encodeStatsBatch(notFound, isSubset, capabilities), capabilities);
+		});
+	}
+	
+	/**
+	 * Encodes a {@link #S2C_STATS_BATCH} payload. Only reads the given
+	 * arguments, so it is safe to call off-thread.
+	 * @param snapshots The snapshots of the stats of the requested players.
+	 * @param isSubset Whether the snapshots only hold the stats the client asked for.
+	 * @param capabilities The capabilities the client asked for.
+	 */
+	private static PacketByteBuf encodeStatsBatch(List<StatsSnapshot> snapshots, boolean isSubset, int capabilities)
+	{
+		var data = new PacketByteBuf(Unpooled.buffer());
+		data.writeVarInt(capabilities);
+		data.writeBoolean(isSubset);
+		int flagIndex = ((capabilities & CAP_COMPRESSION) != 0) ? BSPayloadCompression.reserveBodyFlag(data) : -1;
+		
+		//write the dictionary, made out of the non-zero stats of all players
+		var dictionaryStats = new ObjectArrayList<Stat<?>>();
+		for(var snapshot : snapshots)
+			if(snapshot.statMap != null)
+				for(var entry : Object2IntMaps.fastIterable(snapshot.statMap))
+					if(entry.getIntValue() != 0) dictionaryStats.add(entry.getKey());
+		var dictionary = BSStatsCodec.writeStatDictionary(data, dictionaryStats);
+		
+		//write the profiles
+		data.writeVarInt(snapshots.size());
+		for(var snapshot : snapshots)
+		{
+			data.writeBoolean(snapshot.statMap != null);
+			BSNetworkProfile.writeGameProfile(data, snapshot.gameProfile);
+			if(snapshot.statMap == null) continue;
+			data.writeInt(snapshot.epoch);
+			data.writeVarInt(snapshot.revision);
+			BSStatsCodec.writeDictionaryStats(data, dictionary, snapshot.statMap);
+		}
+		
+		if(flagIndex >= 0) data = BSPayloadCompression.compressBody(data, flagIndex, COMPRESSION_THRESHOLD);
+		return data;
+	}
+	
+	private static void s2c_statsBatch(ServerPlayerEntity player, PacketByteBuf data, int capabilities)
+	{
+		sendPayload(player, S2C_STATS_BATCH, S2C_STATS_BATCH_CHUNK, data, (capabilities & CAP_CHUNKED_STATS) != 0);
+	}
+	
+	/**
+	 * Copies a {@link Stat} map, or only the {@link Stat}s in a given subset of it.
+	 */
+	private static Object2IntOpenHashMap<Stat<?>> copyStats(Object2IntMap<Stat<?>> statMap, @Nullable Collection<Stat<?>> statSubset)
+	{
+		if(statSubset == null) return new Object2IntOpenHashMap<>(statMap);
+		var copy = new Object2IntOpenHashMap<Stat<?>>(statSubset.size());
+		for(var stat : statSubset)
+			if(stat != null && statMap.containsKey(stat))
+				copy.put(stat, statMap.getInt(stat));
+		return copy;
+	}
+	// --------------------------------------------------
+	/**
+	 * Sends a payload to a client. If the payload is too large to be sent at once, and the client
+	 * supports {@link #CAP_CHUNKED_STATS}, it is sent in fragments using the {@link StatsChunkSender}.
+	 * @param channel The channel to send the payload over.
+	 * @param chunkChannel The channel to send the payload's fragments over.
+	 * @param data The payload.
+	 * @param allowChunks Whether the payload may be sent in fragments.
+	 */
+	private static void sendPayload(ServerPlayerEntity player, Identifier channel, Identifier chunkChannel,
+			PacketByteBuf data, boolean allowChunks)
+	{
+		//payloads that are too large to be sent at once are sent in fragments
+		if(allowChunks && data.readableBytes() > StatsChunkSender.FRAGMENT_SIZE)
+		{
+			StatsChunkSender.send(player, chunkChannel, data);
+			return;
+		}
+		
 		//create packet
-		var packet = new CustomPayloadS2CPacket(S2C_STATS, data);
+		var packet = new CustomPayloadS2CPacket(channel, data);
 		//send packet
 		try { player.networkHandler.sendPacket(packet); }
-		catch(Exception e) { LOGGER.debug("Failed to send '" + S2C_STATS + "' packet; " + e.getMessage()); }
+		catch(Exception e) { LOGGER.debug("Failed to send '" + channel + "' packet; " + e.getMessage()); }
 	}
 	// ==================================================
+	/**
+	 * A snapshot of a player's stats, taken on the server thread, so that it can be encoded off-thread.
+	 */
+	private static final class StatsSnapshot
+	{
+		public final @Nullable GameProfile gameProfile;
+		public final @Nullable Object2IntMap<Stat<?>> statMap; //null if the player wasn't found
+		public final int epoch, revision;
+		public StatsSnapshot(@Nullable GameProfile gameProfile, @Nullable Object2IntMap<Stat<?>> statMap, int epoch, int revision)
+		{
+			this.gameProfile = gameProfile;
+			this.statMap = statMap;
+			this.epoch = epoch;
+			this.revision = revision;
+		}
+	}
+	
 	/**
 	 * Keeps track of any preferences a player may have about
 	 * how the server should handle their statistics.
 	 */
 	private static class PlayerPreferences
 	{
-		// ----------------------------------------------
-		public static final short _updateCooldown = 500;
-		public long _lastItemUpdate = 0;
-		public long _lastMobUpdate = 0;
 		// ----------------------------------------------
 		public boolean betterStatsInstalled = false;
 		public boolean statsHudAccuracyMode = false;
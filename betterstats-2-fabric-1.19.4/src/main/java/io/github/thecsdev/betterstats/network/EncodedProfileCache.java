@@ -0,0 +1,142 @@
+package io.github.thecsdev.betterstats.network;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+/**
+ * A server-side cache of encoded {@link BetterStatsNetworkHandler#S2C_STATS} payloads
+ * holding full {@link BSNetworkProfile} snapshots, so that when multiple clients request
+ * the same player's stats, the stats only have to be encoded (and compressed) once.<br/>
+ * <br/>
+ * The payloads are keyed by the player's UUID and the capability flags they were encoded
+ * with, and are valid for as long as the player's {@link StatRevisionTracker} epoch and
+ * revision stay the same, aka until any of the player's stats change. As some stats (such
+ * as the play time) change every tick, payloads also stay valid for {@link #MAX_STALENESS}
+ * milliseconds after that, but only for clients that support
+ * {@link BetterStatsNetworkHandler#CAP_STAT_DELTAS}. The payloads hold the revision they were
+ * encoded at, so those clients are sent the rest of the changes the next time they ask. Other
+ * clients have no way of catching up, so they are only ever sent up-to-date payloads.
+ */
+public final class EncodedProfileCache
+{
+	// ==================================================
+	private EncodedProfileCache() {}
+	// --------------------------------------------------
+	/**
+	 * The time (in milliseconds) a cached payload stays valid for, even if the player's stats changed since.
+	 */
+	public static int MAX_STALENESS = 3000;
+	// --------------------------------------------------
+	private static final Cache<String, CachedPayload> CACHE;
+	private static final AtomicLong HITS = new AtomicLong(), MISSES = new AtomicLong();
+	// ==================================================
+	static
+	{
+		CACHE = CacheBuilder.newBuilder()
+				.maximumSize(256)
+				.expireAfterAccess(5, TimeUnit.MINUTES)
+				.build();
+	}
+	// ==================================================
+	/**
+	 * Returns the cached payload for a given player and capability flags, or null if there is none,
+	 * or if it is outdated. Outdated payloads are still returned for up to {@link #MAX_STALENESS}
+	 * milliseconds, if the capability flags include {@link BetterStatsNetworkHandler#CAP_STAT_DELTAS}.<br/>
+	 * The returned {@link PacketByteBuf} wraps the cached bytes, so it must not be modified.
+	 * @param player The player whose stats the payload holds.
+	 * @param capabilities The capability flags the payload is encoded with (or -1 for the legacy format).
+	 */
+	public static @Nullable PacketByteBuf get(ServerPlayerEntity player, int capabilities)
+	{
+		final var history = StatRevisionTracker.getHistory(player.getStatHandler());
+		final var cached = CACHE.getIfPresent(getKey(player, capabilities));
+		if(cached != null && cached.epoch == history.getEpoch() && (cached.revision == history.getRevision() ||
+				(canCatchUp(capabilities) && System.currentTimeMillis() - cached.createdAt <= MAX_STALENESS)))
+		{
+			HITS.incrementAndGet();
+			return new PacketByteBuf(Unpooled.wrappedBuffer(cached.payload));
+		}
+		MISSES.incrementAndGet();
+		return null;
+	}
+	
+	/**
+	 * Caches an encoded payload, and returns a {@link PacketByteBuf} that wraps the
+	 * cached bytes. The given payload is released. Safe to call from any thread.
+	 * @param player The player whose stats the payload holds.
+	 * @param capabilities The capability flags the payload is encoded with (or -1 for the legacy format).
+	 * @param epoch The {@link StatRevisionTracker} epoch the stats snapshot was taken at.
+	 * @param revision The {@link StatRevisionTracker} revision the stats snapshot was taken at.
+	 * @param payload The encoded payload.
+	 */
+	public static PacketByteBuf put(ServerPlayerEntity player, int capabilities, int epoch, int revision, PacketByteBuf payload)
+	{
+		final byte[] bytes = new byte[payload.readableBytes()];
+		payload.getBytes(payload.readerIndex(), bytes);
+		payload.release();
+		CACHE.put(getKey(player, capabilities), new CachedPayload(epoch, revision, bytes));
+		return new PacketByteBuf(Unpooled.wrappedBuffer(bytes));
+	}
+	
+	/**
+	 * Removes all cached payloads of a given player.
+	 */
+	public static void invalidate(ServerPlayerEntity player)
+	{
+		final String prefix = player.getUuidAsString() + "/";
+		CACHE.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+	}
+	
+	/**
+	 * Returns true if the clients with the given capability flags get sent the changes they missed
+	 * out on the next time they ask, and so can be given an outdated payload.
+	 */
+	private static boolean canCatchUp(int capabilities)
+	{
+		return capabilities >= 0 && (capabilities & BetterStatsNetworkHandler.CAP_STAT_DELTAS) != 0;
+	}
+	
+	private static String getKey(ServerPlayerEntity player, int capabilities)
+	{
+		return player.getUuidAsString() + "/" + capabilities;
+	}
+	// --------------------------------------------------
+	/**
+	 * Returns the number of times a valid payload was found in the cache.
+	 */
+	public static long getHitCount() { return HITS.get(); }
+	
+	/**
+	 * Returns the number of times a payload had to be encoded.
+	 */
+	public static long getMissCount() { return MISSES.get(); }
+	
+	/**
+	 * Returns the number of cached payloads.
+	 */
+	public static long size() { return CACHE.size(); }
+	// ==================================================
+	private static final class CachedPayload
+	{
+		public final int epoch, revision;
+		public final byte[] payload;
+		public final long createdAt;
+		public CachedPayload(int epoch, int revision, byte[] payload)
+		{
+			this.epoch = epoch;
+			this.revision = revision;
+			this.payload = payload;
+			this.createdAt = System.currentTimeMillis();
+		}
+	}
+	// ==================================================
+}
\ No newline at end of file
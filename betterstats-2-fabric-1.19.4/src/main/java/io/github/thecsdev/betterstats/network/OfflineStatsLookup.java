@@ -0,0 +1,208 @@
+package io.github.thecsdev.betterstats.network;
+
+import static io.github.thecsdev.betterstats.BetterStats.LOGGER;
+
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.mojang.authlib.GameProfile;
+
+import io.github.thecsdev.tcdcommons.api.hooks.TCommonHooks;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.stat.ServerStatHandler;
+import net.minecraft.stat.Stat;
+import net.minecraft.util.WorldSavePath;
+
+/**
+ * Looks up the stats of players that aren't online, by reading them from
+ * the world's "stats" folder, where the server saves them.<br/>
+ * <br/>
+ * All of the work, including resolving player names to UUIDs using the server's user cache
+ * and reading the stats files, is done on a background I/O thread. The parsed stats are kept
+ * in a size-bounded cache, keyed by the players' UUIDs, and are only parsed again once their
+ * file's last modified time changes.
+ */
+public final class OfflineStatsLookup
+{
+	// ==================================================
+	private OfflineStatsLookup() {}
+	// --------------------------------------------------
+	/**
+	 * The max number of players whose parsed stats are kept in the cache.
+	 */
+	public static final int CACHE_SIZE = 128;
+	
+	/**
+	 * The max number of lookups that can wait to be done.
+	 * Lookups made while the queue is full find nothing.
+	 */
+	public static final int QUEUE_CAPACITY = 64;
+	// --------------------------------------------------
+	private static final ThreadPoolExecutor IO_EXECUTOR;
+	private static final Cache<UUID, OfflineStats> CACHE;
+	private static final AtomicLong HITS = new AtomicLong(), MISSES = new AtomicLong();
+	// ==================================================
+	static
+	{
+		IO_EXECUTOR = new ThreadPoolExecutor(
+				1, 1, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+				runnable ->
+				{
+					final var thread = new Thread(runnable, "BetterStats Offline Lookup");
+					thread.setDaemon(true);
+					return thread;
+				});
+		IO_EXECUTOR.allowCoreThreadTimeOut(true);
+		
+		CACHE = CacheBuilder.newBuilder()
+				.maximumSize(CACHE_SIZE)
+				.expireAfterAccess(10, TimeUnit.MINUTES)
+				.build();
+	}
+	// ==================================================
+	/**
+	 * Looks up the stats of a player that isn't online, on a background I/O thread.
+	 * @param server The server whose world to read the stats from.
+	 * @param gameProfile The profile of the player. If it has no UUID, the player's
+	 * name is resolved to one using the server's user cache.
+	 * @return A {@link CompletableFuture} that completes on the I/O thread, with
+	 * the player's {@link OfflineStats}, or null if they could not be found.
+	 */
+	public static CompletableFuture<@Nullable OfflineStats> lookup(MinecraftServer server, GameProfile gameProfile)
+	{
+		try { return CompletableFuture.supplyAsync(() -> load(server, gameProfile), IO_EXECUTOR); }
+		catch(RejectedExecutionException e)
+		{
+			LOGGER.debug("Dropped an offline stats lookup for '" + gameProfile.getName() + "'; the lookup queue is full.");
+			return CompletableFuture.completedFuture(null);
+		}
+	}
+	
+	private static @Nullable OfflineStats load(MinecraftServer server, GameProfile gameProfile)
+	{
+		try
+		{
+			//resolve the player's profile using the server's user cache
+			var userCache = server.getUserCache();
+			var profile = gameProfile;
+			if(profile.getId() == null)
+			{
+				if(userCache == null || profile.getName() == null) return null;
+				profile = userCache.findByName(profile.getName()).orElse(null);
+				if(profile == null || profile.getId() == null) return null;
+			}
+			else if(profile.getName() == null && userCache != null)
+				profile = userCache.getByUuid(profile.getId()).orElse(profile);
+			
+			//find the player's stats file
+			var file = server.getSavePath(WorldSavePath.STATS).resolve(profile.getId() + ".json");
+			if(!Files.isRegularFile(file)) return null;
+			final long lastModified = Files.getLastModifiedTime(file).toMillis();
+			
+			//use the cached stats if the file didn't change since they were parsed
+			var cached = CACHE.getIfPresent(profile.getId());
+			if(cached != null && cached.lastModified == lastModified)
+			{
+				HITS.incrementAndGet();
+				return cached;
+			}
+			MISSES.incrementAndGet();
+			
+			//parse the file, the same way the server does when the player joins
+			var statHandler = new ServerStatHandler(server, file.toFile());
+			var statMap = new Object2IntOpenHashMap<>(TCommonHooks.getStatHandlerStatMap(statHandler));
+			var stats = new OfflineStats(profile, statMap, lastModified);
+			CACHE.put(profile.getId(), stats);
+			return stats;
+		}
+		catch(Exception e)
+		{
+			LOGGER.debug("Failed to look up the offline stats of '" + gameProfile.getName() + "'; " + e.getMessage());
+			return null;
+		}
+	}
+	// --------------------------------------------------
+	/**
+	 * Returns the number of times a player's parsed stats were found in the cache.
+	 */
+	public static long getHitCount() { return HITS.get(); }
+	
+	/**
+	 * Returns the number of times a player's stats file had to be parsed.
+	 */
+	public static long getMissCount() { return MISSES.get(); }
+	// ==================================================
+	/**
+	 * The stats of a player that isn't online, as read from their stats file.
+	 */
+	public static final class OfflineStats
+	{
+		// ----------------------------------------------
+		/**
+		 * The profile of the player, as resolved using the server's user cache.
+		 */
+		public final GameProfile gameProfile;
+		
+		/**
+		 * The player's stats. Read-only, and safe to read from any thread.
+		 */
+		public final Object2IntMap<Stat<?>> statMap;
+		
+		/**
+		 * The last modified time of the stats file the stats were read from.
+		 */
+		public final long lastModified;
+		//
+		private final Int2ObjectOpenHashMap<byte[]> payloads; //encoded payloads, by their capabilities
+		// ----------------------------------------------
+		private OfflineStats(GameProfile gameProfile, Object2IntMap<Stat<?>> statMap, long lastModified)
+		{
+			this.gameProfile = gameProfile;
+			this.statMap = Object2IntMaps.unmodifiable(statMap);
+			this.lastModified = lastModified;
+			this.payloads = new Int2ObjectOpenHashMap<>();
+		}
+		// ----------------------------------------------
+		/**
+		 * Returns the encoded {@link BetterStatsNetworkHandler#S2C_STATS} payload holding these
+		 * stats for given capability flags, encoding and keeping it if it wasn't encoded yet.
+		 * The returned {@link PacketByteBuf} wraps the kept bytes, so it must not be modified.
+		 * @param capabilities The capability flags the payload is encoded with (or -1 for the legacy format).
+		 * @param encoder Encodes the payload.
+		 */
+		public PacketByteBuf getOrEncode(int capabilities, Supplier<PacketByteBuf> encoder)
+		{
+			byte[] bytes;
+			synchronized(this.payloads) { bytes = this.payloads.get(capabilities); }
+			if(bytes == null)
+			{
+				final var payload = encoder.get();
+				bytes = new byte[payload.readableBytes()];
+				payload.getBytes(payload.readerIndex(), bytes);
+				payload.release();
+				synchronized(this.payloads) { this.payloads.put(capabilities, bytes); }
+			}
+			return new PacketByteBuf(Unpooled.wrappedBuffer(bytes));
+		}
+		// ----------------------------------------------
+	}
+	// ==================================================
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package io.github.thecsdev.betterstats.network;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.jetbrains.annotations.Nullable;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.stat.ServerStatHandler;
+import net.minecraft.stat.Stat;
+
+/**
+ * Keeps track of when the {@link Stat}s of each {@link ServerStatHandler} were changed,
+ * so that clients can be sent only the {@link Stat}s that changed since they last
+ * received them, instead of all of them.<br/>
+ * <br/>
+ * Each {@link ServerStatHandler} has a {@link StatHistory}, identified by a random
+ * "epoch", and a "revision" that increases by one every time a {@link Stat} is set.
+ * A client that knows the epoch and the revision it last received can then ask for
+ * the changes since that revision. When the epoch doesn't match (for example, after
+ * the player re-joined or the server restarted), the whole history is unknown, and
+ * a full snapshot has to be sent instead.
+ */
+public final class StatRevisionTracker
+{
+	// ==================================================
+	private StatRevisionTracker() {}
+	// --------------------------------------------------
+	//weak keys, so the histories go away once the players' stat handlers do
+	private static final Map<ServerStatHandler, StatHistory> HISTORIES = Collections.synchronizedMap(new WeakHashMap<>());
+	// ==================================================
+	/**
+	 * Returns the {@link StatHistory} of a given {@link ServerStatHandler},
+	 * creating it if it doesn't exist yet.
+	 */
+	public static StatHistory getHistory(ServerStatHandler statHandler)
+	{
+		return HISTORIES.computeIfAbsent(statHandler, __ -> new StatHistory());
+	}
+	
+	/**
+	 * Called whenever a {@link Stat} of a {@link ServerStatHandler} is set.
+	 */
+	public static void onStatChanged(ServerStatHandler statHandler, Stat<?> stat)
+	{
+		getHistory(statHandler).markChanged(stat);
+	}
+	// ==================================================
+	/**
+	 * The revision history of a single {@link ServerStatHandler}.
+	 */
+	public static final class StatHistory
+	{
+		// ----------------------------------------------
+		private final int epoch;
+		private int revision;
+		private final Object2IntOpenHashMap<Stat<?>> statRevisions; //the revision each stat last changed at
+		// ----------------------------------------------
+		private StatHistory()
+		{
+			//0 is reserved for "no epoch", which is what clients send when they don't have any stats yet
+			int epoch;
+			do epoch = ThreadLocalRandom.current().nextInt(); while(epoch == 0);
+			this.epoch = epoch;
+			this.revision = 0;
+			this.statRevisions = new Object2IntOpenHashMap<>();
+		}
+		// ----------------------------------------------
+		/**
+		 * Returns the random ID of this {@link StatHistory}.
+		 */
+		public int getEpoch() { return this.epoch; }
+		
+		/**
+		 * Returns the current revision, aka the number of times a {@link Stat} was set.
+		 */
+		public synchronized int getRevision() { return this.revision; }
+		
+		private synchronized void markChanged(Stat<?> stat) { this.statRevisions.put(stat, ++this.revision); }
+		// ----------------------------------------------
+		/**
+		 * Returns the {@link Stat}s that changed after a given revision, alongside their
+		 * current values, or null if the changes since that revision are not known.
+		 * @param statHandler The {@link ServerStatHandler} to read the current values from.
+		 * @param epoch The epoch the revision belongs to.
+		 * @param revision The revision the client already has.
+		 */
+		public synchronized @Nullable Object2IntMap<Stat<?>> getChangesSince(ServerStatHandler statHandler, int epoch, int revision)
+		{
+			//the history is only known for this epoch, and only up to the current revision
+			if(epoch != this.epoch || revision < 0 || revision > this.revision)
+				return null;
+			
+			//collect the stats that changed after the given revision
+			final var changes = new Object2IntOpenHashMap<Stat<?>>();
+			for(var entry : Object2IntMaps.fastIterable(this.statRevisions))
+				if(entry.getIntValue() > revision)
+					changes.put(entry.getKey(), statHandler.getStat(entry.getKey()));
+			return changes;
+		}
+		// ----------------------------------------------
+	}
+	// ==================================================
+}
\ No newline at end of file
@@ -0,0 +1,195 @@
+package io.github.thecsdev.betterstats.network;
+
+import static io.github.thecsdev.betterstats.BetterStats.LOGGER;
+import static io.github.thecsdev.betterstats.network.BetterStatsNetworkHandler.S2C_STATS_CHUNK;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.UUID;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.packet.s2c.play.CustomPayloadS2CPacket;
+import net.minecraft.server.PlayerManager;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.Identifier;
+
+/**
+ * Sends {@link BetterStatsNetworkHandler#S2C_STATS} payloads that are too large to be sent
+ * at once, by splitting them into sequence-numbered {@link BetterStatsNetworkHandler#S2C_STATS_CHUNK}
+ * fragments that are sent over multiple ticks. {@link BetterStatsNetworkHandler#S2C_STATS_BATCH}
+ * payloads are sent the same way, using {@link BetterStatsNetworkHandler#S2C_STATS_BATCH_CHUNK}.<br/>
+ * <br/>
+ * No more than {@link #MAX_FRAGMENTS_PER_TICK} fragments are sent per tick, across all transfers,
+ * which take turns sending their fragments. A player may be sent several payloads at once, but
+ * no more than {@link #MAX_CONCURRENT_TRANSFERS} of them are in progress at a time, while the rest
+ * wait for their turn. Each fragment is written as follows:
+ * <pre>
+ * varint transferId
+ * varint fragmentIndex
+ * varint fragmentCount
+ * varint totalLength (of the S2C_STATS payload)
+ * (the rest of the payload) fragment bytes
+ * </pre>
+ */
+public final class StatsChunkSender
+{
+	// ==================================================
+	private StatsChunkSender() {}
+	// --------------------------------------------------
+	/**
+	 * The max number of payload bytes per fragment. Payloads larger than this are sent in fragments.
+	 */
+	public static int FRAGMENT_SIZE = 32 * 1024;
+	
+	/**
+	 * The max number of fragments sent per server tick, across all transfers.
+	 */
+	public static int MAX_FRAGMENTS_PER_TICK = 8;
+	
+	/**
+	 * The max number of transfers in progress per player. Clients don't
+	 * reassemble more than this many payloads at once, so this is fixed.
+	 */
+	public static final int MAX_CONCURRENT_TRANSFERS = 4;
+	// --------------------------------------------------
+	private static final ArrayDeque<Transfer> TRANSFERS = new ArrayDeque<>();
+	private static int NextTransferId = 0;
+	// ==================================================
+	/**
+	 * Starts sending a {@link BetterStatsNetworkHandler#S2C_STATS} payload in fragments.
+	 * @param player The player to send the payload to.
+	 * @param payload The payload to send.
+	 */
+	public static void send(ServerPlayerEntity player, PacketByteBuf payload) { send(player, S2C_STATS_CHUNK, payload); }
+	
+	/**
+	 * Starts sending a payload in fragments, over a given channel.
+	 * @param player The player to send the payload to.
+	 * @param chunkChannel The channel to send the fragments over.
+	 * @param payload The payload to send.
+	 */
+	public static void send(ServerPlayerEntity player, Identifier chunkChannel, PacketByteBuf payload)
+	{
+		synchronized(TRANSFERS)
+		{
+			NextTransferId = (NextTransferId + 1) & Integer.MAX_VALUE;
+			TRANSFERS.add(new Transfer(player, chunkChannel, NextTransferId, payload));
+		}
+	}
+	
+	/**
+	 * Cancels any transfers to a given player. Called when the player leaves.
+	 */
+	public static void cancel(ServerPlayerEntity player)
+	{
+		final var playerId = player.getUuid();
+		synchronized(TRANSFERS) { TRANSFERS.removeIf(transfer -> transfer.playerId.equals(playerId)); }
+	}
+	
+	/**
+	 * Sends the next fragments, taking turns between the transfers.
+	 * Called once per server tick.
+	 * @param playerMgr The {@link PlayerManager} the players' current entities are looked up from.
+	 */
+	public static void tick(PlayerManager playerMgr)
+	{
+		synchronized(TRANSFERS)
+		{
+			int budget = MAX_FRAGMENTS_PER_TICK;
+			boolean sentAny = true;
+			while(budget > 0 && sentAny)
+			{
+				//go through each transfer once
+				sentAny = false;
+				for(int turns = TRANSFERS.size(); turns > 0 && budget > 0; turns--)
+				{
+					//take the next transfer, and drop it if the player left
+					//(using the player's current entity, as they may have respawned)
+					final var transfer = TRANSFERS.poll();
+					final var player = playerMgr.getPlayer(transfer.playerId);
+					if(player == null || player.isDisconnected()) continue;
+					
+					//transfers that didn't start yet wait until the player has room for them
+					if(!transfer.isStarted() && countStarted(transfer.playerId) >= MAX_CONCURRENT_TRANSFERS)
+					{
+						TRANSFERS.add(transfer);
+						continue;
+					}
+					
+					//send its next fragment, and put it back in line if there's more to send
+					transfer.sendNextFragment(player);
+					budget--;
+					sentAny = true;
+					if(!transfer.isDone()) TRANSFERS.add(transfer);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of transfers to a given player that are in progress.
+	 */
+	private static int countStarted(UUID playerId)
+	{
+		int count = 0;
+		for(var transfer : TRANSFERS)
+			if(transfer.playerId.equals(playerId) && transfer.isStarted()) count++;
+		return count;
+	}
+	// ==================================================
+	/**
+	 * A {@link BetterStatsNetworkHandler#S2C_STATS} payload that is being sent in fragments.
+	 */
+	private static final class Transfer
+	{
+		// ----------------------------------------------
+		public final UUID playerId;
+		public final Identifier chunkChannel;
+		public final int transferId;
+		public final PacketByteBuf payload;
+		public final int fragmentSize, fragmentCount;
+		private int nextFragment;
+		// ----------------------------------------------
+		public Transfer(ServerPlayerEntity player, Identifier chunkChannel, int transferId, PacketByteBuf payload)
+		{
+			this.playerId = player.getUuid();
+			this.chunkChannel = Objects.requireNonNull(chunkChannel);
+			this.transferId = transferId;
+			this.payload = Objects.requireNonNull(payload);
+			this.fragmentSize = Math.max(1, FRAGMENT_SIZE);
+			this.fragmentCount = Math.max(1, (payload.readableBytes() + this.fragmentSize - 1) / this.fragmentSize);
+			this.nextFragment = 0;
+		}
+		// ----------------------------------------------
+		public boolean isStarted() { return this.nextFragment > 0; }
+		public boolean isDone() { return this.nextFragment >= this.fragmentCount; }
+		
+		public void sendNextFragment(ServerPlayerEntity player)
+		{
+			//calculate the fragment's bounds
+			final int totalLength = this.payload.readableBytes();
+			final int offset = this.nextFragment * this.fragmentSize;
+			final int length = Math.min(this.fragmentSize, totalLength - offset);
+			
+			//write the fragment
+			final var data = new PacketByteBuf(Unpooled.buffer(length + 20));
+			data.writeVarInt(this.transferId);
+			data.writeVarInt(this.nextFragment);
+			data.writeVarInt(this.fragmentCount);
+			data.writeVarInt(totalLength);
+			data.writeBytes(this.payload, this.payload.readerIndex() + offset, length);
+			this.nextFragment++;
+			
+			//send the fragment
+			try { player.networkHandler.sendPacket(new CustomPayloadS2CPacket(this.chunkChannel, data)); }
+			catch(Exception e)
+			{
+				LOGGER.debug("Failed to send '" + this.chunkChannel + "' packet; " + e.getMessage());
+				this.nextFragment = this.fragmentCount; //no point in sending the rest
+			}
+		}
+		// ----------------------------------------------
+	}
+	// ==================================================
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+package io.github.thecsdev.betterstats.network;
+
+import static io.github.thecsdev.betterstats.BetterStats.LOGGER;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+/**
+ * Encodes {@link BetterStatsNetworkHandler#S2C_STATS} payloads on a small pool of
+ * worker threads, so that encoding (and compressing) them doesn't take up server tick time.<br/>
+ * <br/>
+ * The caller is expected to take a snapshot of the stats on the server thread, and hand
+ * it over to an encoder that only reads that snapshot. Once the payload is encoded, it is
+ * handed back to the server thread, where it gets sent.<br/>
+ * <br/>
+ * The number of waiting requests is limited to {@link #QUEUE_CAPACITY}, and requests
+ * that are not done within {@link #DEADLINE} milliseconds are dropped. The caller gets to
+ * tell the client about dropped requests, so that the client doesn't wait for them.
+ */
+public final class StatsEncodingPipeline
+{
+	// ==================================================
+	private StatsEncodingPipeline() {}
+	// --------------------------------------------------
+	/**
+	 * The number of worker threads that encode the payloads.
+	 */
+	public static final int WORKER_THREADS = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2));
+	
+	/**
+	 * The max number of requests that can wait to be encoded.
+	 * Requests made while the queue is full are dropped.
+	 */
+	public static final int QUEUE_CAPACITY = 64;
+	
+	/**
+	 * The time (in milliseconds) a request has to be encoded and sent in, after which it is dropped.
+	 * Should be well below the time the client waits for a response in, as the request may have
+	 * been waiting for the rate limits (and offline stats lookups) before being submitted.
+	 */
+	public static int DEADLINE = 5000;
+	// --------------------------------------------------
+	private static final ThreadPoolExecutor EXECUTOR;
+	// ==================================================
+	static
+	{
+		final var threadId = new AtomicInteger();
+		EXECUTOR = new ThreadPoolExecutor(
+				WORKER_THREADS, WORKER_THREADS, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+				runnable ->
+				{
+					final var thread = new Thread(runnable, "BetterStats Encoder #" + threadId.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+	// ==================================================
+	/**
+	 * Encodes a payload on a worker thread, and then hands it over to a
+	 * given {@link Consumer} on the server thread.<br/>
+	 * <b>Important:</b> The encoder must only read data that isn't modified
+	 * by the server thread, aka a snapshot taken before calling this.
+	 * @param player The player the payload is for. Nothing is sent if they leave in the meantime.
+	 * @param encoder Encodes the payload. Called on a worker thread.
+	 * @param sender Sends the encoded payload. Called on the server thread.
+	 * @return False if the request was dropped because the queue is full.
+	 */
+	public static boolean submit(ServerPlayerEntity player, Supplier<PacketByteBuf> encoder, Consumer<PacketByteBuf> sender)
+	{
+		return submit(player, encoder, sender, null);
+	}
+	
+	/**
+	 * Same as {@link #submit(ServerPlayerEntity, Supplier, Consumer)}, but also
+	 * takes a {@link Runnable} that tells the client if the request was dropped.
+	 * @param onDropped Called on the server thread instead of the sender, if the request is dropped
+	 * because the queue is full, because it missed the {@link #DEADLINE}, or because it failed to
+	 * be encoded. Not called if the player left. May be null.
+	 * @return False if the request was dropped because the queue is full.
+	 */
+	public static boolean submit(ServerPlayerEntity player, Supplier<PacketByteBuf> encoder,
+			Consumer<PacketByteBuf> sender, @Nullable Runnable onDropped)
+	{
+		final long deadline = System.currentTimeMillis() + DEADLINE;
+		try
+		{
+			EXECUTOR.execute(() ->
+			{
+				//no point in encoding a payload that will be dropped
+				if(isExpired(player, deadline)) { player.getServer().execute(() -> onDropped(player, onDropped)); return; }
+				
+				//encode the payload
+				final PacketByteBuf payload;
+				try { payload = encoder.get(); }
+				catch(Exception e)
+				{
+					LOGGER.debug("Failed to encode stats payload; " + e.getMessage());
+					player.getServer().execute(() -> onDropped(player, onDropped));
+					return;
+				}
+				
+				//hand it back to the server thread
+				player.getServer().execute(() ->
+				{
+					if(isExpired(player, deadline)) { payload.release(); onDropped(player, onDropped); return; }
+					sender.accept(payload);
+				});
+			});
+			return true;
+		}
+		catch(RejectedExecutionException e)
+		{
+			LOGGER.debug("Dropped a stats request for '" + player.getEntityName() + "'; the encoding queue is full.");
+			onDropped(player, onDropped);
+			return false;
+		}
+	}
+	
+	private static void onDropped(ServerPlayerEntity player, @Nullable Runnable onDropped)
+	{
+		if(onDropped != null && !player.isDisconnected()) onDropped.run();
+	}
+	
+	private static boolean isExpired(ServerPlayerEntity player, long deadline)
+	{
+		return player.isDisconnected() || System.currentTimeMillis() > deadline;
+	}
+	// --------------------------------------------------
+	/**
+	 * Returns the number of requests waiting to be encoded.
+	 */
+	public static int getQueueSize() { return EXECUTOR.getQueue().size(); }
+	// ==================================================
+}
\ No newline at end of file
@@ -0,0 +1,243 @@
+package io.github.thecsdev.betterstats.network;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.UUID;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+/**
+ * Limits how often {@link BetterStatsNetworkHandler#C2S_REQ_STATS} requests are handled,
+ * so that clients can't take up server tick time by spamming them.<br/>
+ * <br/>
+ * Each player has a "token bucket" that holds up to {@link #BUCKET_CAPACITY} tokens, and
+ * gets a new token every {@link #REFILL_INTERVAL} ticks. Handling a request takes a token
+ * (or more, for batched requests, see {@link #getBatchCost(int)}), and no more than {@link #REQUESTS_PER_TICK} requests are handled per tick, across all players.<br/>
+ * <br/>
+ * Requests that can't be handled right away are not rejected. Instead, they are deferred,
+ * and handled on later ticks, with the players taking turns. Only when a player has more than
+ * {@link #MAX_DEFERRED_REQUESTS} deferred requests are their oldest ones dropped.<br/>
+ * <br/>
+ * The buckets are kept by the players' UUIDs, as a new {@link ServerPlayerEntity}
+ * is created every time a player respawns.<br/>
+ * <b>Note:</b> Only use this on the server thread.
+ */
+public final class StatsRequestLimiter
+{
+	// ==================================================
+	private StatsRequestLimiter() {}
+	// --------------------------------------------------
+	/**
+	 * The max number of tokens a player can have, aka the max
+	 * number of requests a player can make at once.
+	 */
+	public static int BUCKET_CAPACITY = 8;
+	
+	/**
+	 * The interval (in ticks) at which players get a new token.
+	 */
+	public static int REFILL_INTERVAL = 10;
+	
+	/**
+	 * The max number of requests handled per tick, across all players.
+	 */
+	public static int REQUESTS_PER_TICK = 4;
+	
+	/**
+	 * The max number of deferred requests per player.
+	 */
+	public static int MAX_DEFERRED_REQUESTS = 8;
+	
+	/**
+	 * The number of players a batched request may ask for per token it takes.
+	 */
+	public static int BATCH_PROFILES_PER_TOKEN = 8;
+	// --------------------------------------------------
+	private static final Object2ObjectOpenHashMap<UUID, PlayerBucket> BUCKETS;
+	private static final ArrayDeque<PlayerBucket> WAITING; //the players with deferred requests, in turn order
+	private static long CurrentTick = 0;
+	private static int TickBudget = REQUESTS_PER_TICK;
+	//
+	private static long ServedCount = 0, ThrottledCount = 0, DroppedCount = 0;
+	// ==================================================
+	static
+	{
+		BUCKETS = new Object2ObjectOpenHashMap<>();
+		WAITING = new ArrayDeque<>();
+	}
+	// ==================================================
+	/**
+	 * Handles a player's request right away if the limits allow it, or defers it if they don't.
+	 * @param player The player that made the request.
+	 * @param request Handles the request.
+	 */
+	public static void submit(ServerPlayerEntity player, Runnable request) { submit(player, 1, request); }
+	
+	/**
+	 * Same as {@link #submit(ServerPlayerEntity, Runnable)}, but for requests that take more than one token.
+	 * @param player The player that made the request.
+	 * @param cost The number of tokens the request takes (capped to the {@link #BUCKET_CAPACITY}).
+	 * @param request Handles the request.
+	 */
+	public static void submit(ServerPlayerEntity player, int cost, Runnable request)
+	{
+		//handle the request right away if the player doesn't have
+		//any requests waiting already, and if the limits allow it
+		final var bucket = BUCKETS.computeIfAbsent(player.getUuid(), __ -> new PlayerBucket(player));
+		bucket.player = player; //in case they respawned
+		if(bucket.deferred.isEmpty() && TickBudget > 0 && bucket.tryTakeTokens(cost))
+		{
+			TickBudget--;
+			ServedCount++;
+			request.run();
+			return;
+		}
+		
+		//else defer it (dropping the oldest one if there are too many, as it's the least relevant one)
+		ThrottledCount++;
+		if(bucket.deferred.size() >= Math.max(MAX_DEFERRED_REQUESTS, 1))
+		{
+			bucket.deferred.poll();
+			DroppedCount++;
+		}
+		bucket.deferred.add(new DeferredRequest(cost, request));
+		if(!bucket.isWaiting) { bucket.isWaiting = true; WAITING.add(bucket); }
+	}
+	
+	/**
+	 * Removes the token bucket and any deferred requests of a given player.
+	 */
+	public static void remove(ServerPlayerEntity player) { remove(player.getUuid()); }
+	
+	/**
+	 * Removes the token bucket and any deferred requests of the player with a given UUID.
+	 */
+	public static void remove(UUID playerId)
+	{
+		final var bucket = BUCKETS.remove(playerId);
+		if(bucket != null && bucket.isWaiting) WAITING.remove(bucket);
+	}
+	
+	/**
+	 * Resets the per-tick budget, and handles deferred requests, one per player per tick,
+	 * with the players taking turns. Called once per server tick.
+	 */
+	public static void tick()
+	{
+		CurrentTick++;
+		TickBudget = Math.max(REQUESTS_PER_TICK, 0);
+		
+		//go through each waiting player once
+		for(int turns = WAITING.size(); turns > 0 && TickBudget > 0; turns--)
+		{
+			final var bucket = WAITING.poll();
+			if(bucket.player.isDisconnected()) { remove(bucket.playerId); continue; }
+			
+			//handle their next request if they have the tokens for it
+			if(bucket.tryTakeTokens(bucket.deferred.peek().cost))
+			{
+				TickBudget--;
+				ServedCount++;
+				bucket.deferred.poll().request.run();
+			}
+			
+			//put them back in line if they have more requests waiting
+			if(!bucket.deferred.isEmpty()) WAITING.add(bucket);
+			else bucket.isWaiting = false;
+		}
+	}
+	// --------------------------------------------------
+	/**
+	 * Returns the number of tokens a batched request for a given number of players takes.
+	 */
+	public static int getBatchCost(int profileCount)
+	{
+		final int perToken = Math.max(BATCH_PROFILES_PER_TOKEN, 1);
+		return Math.max(1, (profileCount + perToken - 1) / perToken);
+	}
+	// --------------------------------------------------
+	/**
+	 * Returns the number of requests that were handled.
+	 */
+	public static long getServedCount() { return ServedCount; }
+	
+	/**
+	 * Returns the number of requests that could not be handled right away, and had to be deferred.
+	 */
+	public static long getThrottledCount() { return ThrottledCount; }
+	
+	/**
+	 * Returns the number of deferred requests that were dropped,
+	 * because the player had too many deferred requests.
+	 */
+	public static long getDroppedCount() { return DroppedCount; }
+	
+	/**
+	 * Returns the number of requests that are currently deferred.
+	 */
+	public static int getDeferredCount()
+	{
+		int count = 0;
+		for(var bucket : WAITING) count += bucket.deferred.size();
+		return count;
+	}
+	// ==================================================
+	/**
+	 * The token bucket and the deferred requests of a single player.
+	 */
+	private static final class PlayerBucket
+	{
+		// ----------------------------------------------
+		public final UUID playerId;
+		public ServerPlayerEntity player; //the player's current entity
+		public final ArrayDeque<DeferredRequest> deferred;
+		public boolean isWaiting;
+		private int tokens;
+		private long lastRefillTick;
+		// ----------------------------------------------
+		public PlayerBucket(ServerPlayerEntity player)
+		{
+			this.player = Objects.requireNonNull(player);
+			this.playerId = player.getUuid();
+			this.deferred = new ArrayDeque<>();
+			this.isWaiting = false;
+			this.tokens = Math.max(BUCKET_CAPACITY, 1);
+			this.lastRefillTick = CurrentTick;
+		}
+		// ----------------------------------------------
+		public boolean tryTakeTokens(int count)
+		{
+			//refill the tokens for the ticks that passed since the last refill
+			final int capacity = Math.max(BUCKET_CAPACITY, 1), interval = Math.max(REFILL_INTERVAL, 1);
+			final long refills = (CurrentTick - this.lastRefillTick) / interval;
+			if(refills > 0)
+			{
+				this.tokens = (int)Math.min(capacity, this.tokens + refills);
+				this.lastRefillTick = (this.tokens < capacity) ? this.lastRefillTick + (refills * interval) : CurrentTick;
+			}
+			
+			//take the tokens (requests can't take more than the bucket holds, or they'd never be handled)
+			count = Math.max(1, Math.min(count, capacity));
+			if(this.tokens < count) return false;
+			this.tokens -= count;
+			return true;
+		}
+		// ----------------------------------------------
+	}
+	
+	/**
+	 * A request that is waiting to be handled, and the number of tokens it takes.
+	 */
+	private static final class DeferredRequest
+	{
+		public final int cost;
+		public final Runnable request;
+		public DeferredRequest(int cost, Runnable request)
+		{
+			this.cost = cost;
+			this.request = Objects.requireNonNull(request);
+		}
+	}
+	// ==================================================
+}
\ No newline at end of file
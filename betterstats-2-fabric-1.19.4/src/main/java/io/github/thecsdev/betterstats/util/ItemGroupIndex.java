@@ -0,0 +1,128 @@
+package io.github.thecsdev.betterstats.util;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.jetbrains.annotations.Nullable;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemGroup;
+import net.minecraft.item.ItemGroups;
+import net.minecraft.item.ItemStack;
+import net.minecraft.registry.RegistryWrapper;
+import net.minecraft.resource.featuretoggle.FeatureSet;
+
+/**
+ * A reverse index that maps {@link Item}s to the {@link ItemGroup}s they
+ * are displayed in, so that looking up an {@link Item}'s group does not
+ * require scanning every {@link ItemGroup}'s display stacks.<br/>
+ * <br/>
+ * The index is built from {@link ItemGroup#getDisplayStacks()}, and has to be
+ * rebuilt whenever {@link ItemGroups#updateDisplayContext(FeatureSet, boolean, RegistryWrapper.WrapperLookup)}
+ * changes the displayed stacks. Use {@link #updateDisplayContext(FeatureSet, boolean, RegistryWrapper.WrapperLookup)}
+ * to have that handled automatically.
+ */
+public final class ItemGroupIndex
+{
+	// ==================================================
+	private ItemGroupIndex() {}
+	// --------------------------------------------------
+	/**
+	 * The {@link Item} to {@link ItemGroup} index itself.
+	 */
+	private static final Reference2ObjectOpenHashMap<Item, ItemGroup> INDEX = new Reference2ObjectOpenHashMap<>();
+	
+	/**
+	 * The {@link ItemGroup#getDisplayStacks()} collections the {@link #INDEX} was built from.
+	 * {@link ItemGroup}s replace their display stack collections when their entries are
+	 * updated, which is what is used to tell if the {@link #INDEX} is out of date.
+	 */
+	private static final ObjectArrayList<Collection<ItemStack>> INDEXED_STACKS = new ObjectArrayList<>();
+	
+	/**
+	 * When set to true, the {@link #INDEX} will be rebuilt the next time it is accessed.
+	 */
+	private static boolean DIRTY = true;
+	// ==================================================
+	/**
+	 * Returns the {@link ItemGroup} a given {@link Item} is displayed in, or
+	 * null if the {@link Item} is not in any {@link ItemGroup}.<br/>
+	 * If an {@link Item} is in more than one {@link ItemGroup}, the first one
+	 * in {@link ItemGroups#getGroups()} is returned.
+	 * @param item The {@link Item} in question.
+	 */
+	public static @Nullable ItemGroup getItemGroup(Item item)
+	{
+		if(item == null) return null;
+		if(DIRTY) rebuild();
+		return INDEX.get(item);
+	}
+	// --------------------------------------------------
+	/**
+	 * Calls {@link ItemGroups#updateDisplayContext(FeatureSet, boolean, RegistryWrapper.WrapperLookup)},
+	 * and marks this index as dirty if the display context was changed.
+	 * @return The value returned by {@link ItemGroups#updateDisplayContext(FeatureSet, boolean, RegistryWrapper.WrapperLookup)}.
+	 */
+	public static boolean updateDisplayContext(FeatureSet enabledFeatures, boolean operatorEnabled, RegistryWrapper.WrapperLookup lookup)
+	{
+		boolean changed = ItemGroups.updateDisplayContext(enabledFeatures, operatorEnabled, lookup);
+		if(changed) DIRTY = true;
+		return changed;
+	}
+	
+	/**
+	 * Marks this index as dirty, so it is rebuilt the next time it is accessed.
+	 */
+	public static void invalidate() { DIRTY = true; }
+	
+	/**
+	 * Makes sure this index is up to date, by checking if any {@link ItemGroup}
+	 * had its display stacks updated since the last time the index was built.
+	 * This catches display context updates that were not done using
+	 * {@link #updateDisplayContext(FeatureSet, boolean, RegistryWrapper.WrapperLookup)},
+	 * such as the ones done by the creative inventory screen.<br/>
+	 * <br/>
+	 * Call this once before doing a lot of {@link #getItemGroup(Item)} lookups.
+	 */
+	public static void ensureUpToDate()
+	{
+		if(DIRTY || isStale()) rebuild();
+	}
+	// --------------------------------------------------
+	private static boolean isStale()
+	{
+		List<ItemGroup> groups = ItemGroups.getGroups();
+		if(groups.size() != INDEXED_STACKS.size()) return true;
+		for(int i = 0; i < groups.size(); i++)
+			if(groups.get(i).getDisplayStacks() != INDEXED_STACKS.get(i))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Rebuilds the {@link #INDEX} using the current {@link ItemGroup#getDisplayStacks()}.
+	 */
+	private static void rebuild()
+	{
+		INDEX.clear();
+		INDEXED_STACKS.clear();
+		for(ItemGroup group : ItemGroups.getGroups())
+		{
+			//keep track of the stacks the index is being built from
+			var stacks = group.getDisplayStacks();
+			INDEXED_STACKS.add(stacks);
+			//ignore the search group, as it is used for the
+			//creative menu item search tab
+			if(group == ItemGroups.SEARCH) continue;
+			//index all items in the current group. stacks with different NBT
+			//(such as potions and enchanted books) share the same item, and
+			//the first group an item appears in is the one it belongs to
+			for(ItemStack stack : stacks)
+				INDEX.putIfAbsent(stack.getItem(), group);
+		}
+		DIRTY = false;
+	}
+	// ==================================================
+}
\ No newline at end of file
@@ -0,0 +1,162 @@
+package io.github.thecsdev.betterstats.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsItemStat;
+import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsMobStat;
+import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsStat;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+
+/**
+ * The result of a {@link StatUtils} stat aggregation. Maps groups to the stats in them,
+ * in the order the groups were created, just like a {@link LinkedHashMap} would.<br/>
+ * <br/>
+ * On top of that, a {@link StatAggregate} sums up the values of the stats as they are
+ * added to it, both per group and overall, so that totals don't have to be calculated
+ * by walking the groups again. The sums are {@code long}s, so they don't overflow.<br/>
+ * <br/>
+ * The groups and their stats can only be read from the outside, and only
+ * {@link #add(Object, StatUtilsStat)}ed to, so that the sums always match them.
+ * @param <K> The type of the group keys.
+ * @param <S> The type of the stats.
+ */
+public final class StatAggregate<K, S extends StatUtilsStat>
+{
+	// ==================================================
+	/**
+	 * {@link StatUtilsMobStat} column indexes.
+	 */
+	public static final int COLUMN_KILLED = 0, COLUMN_KILLED_BY = 1;
+	// --------------------------------------------------
+	private final ColumnReader<S> columnReader;
+	private final LinkedHashMap<K, ArrayList<S>> groups;
+	private final long[] totals;
+	private final Object2ObjectOpenHashMap<K, long[]> groupTotals;
+	// ==================================================
+	/**
+	 * Creates a {@link StatAggregate}.
+	 * @param columnCount The number of values each stat has.
+	 * @param columnReader Reads the values of the stats.
+	 */
+	public StatAggregate(int columnCount, ColumnReader<S> columnReader)
+	{
+		this.columnReader = Objects.requireNonNull(columnReader, "columnReader must not be null.");
+		this.groups = new LinkedHashMap<>();
+		this.totals = new long[columnCount];
+		this.groupTotals = new Object2ObjectOpenHashMap<>();
+	}
+	
+	/**
+	 * Creates a {@link StatAggregate} for {@link StatUtilsItemStat}s.<br/>
+	 * The column indexes are the {@link ItemStatEnum} ordinals.
+	 */
+	public static <K> StatAggregate<K, StatUtilsItemStat> ofItemStats()
+	{
+		final var statTypes = ItemStatEnum.values();
+		return new StatAggregate<>(statTypes.length, (stat, column) -> stat.getValue(statTypes[column]));
+	}
+	
+	/**
+	 * Creates a {@link StatAggregate} for {@link StatUtilsMobStat}s.
+	 * @see #COLUMN_KILLED
+	 * @see #COLUMN_KILLED_BY
+	 */
+	public static <K> StatAggregate<K, StatUtilsMobStat> ofMobStats()
+	{
+		return new StatAggregate<>(2, (stat, column) -> (column == COLUMN_KILLED) ? stat.killed : stat.killedBy);
+	}
+	// ==================================================
+	/**
+	 * Creates an empty group, if it doesn't exist yet. Use this to
+	 * have a group placed before the groups that are added after it.
+	 */
+	public void addGroup(K group)
+	{
+		if(this.groups.containsKey(group)) return;
+		this.groups.put(group, new ArrayList<>());
+		this.groupTotals.put(group, new long[this.totals.length]);
+	}
+	
+	/**
+	 * Adds a stat to a group, creating the group if needed, and
+	 * adds its values to the group's and the overall totals.
+	 */
+	public void add(K group, S stat)
+	{
+		addGroup(group);
+		this.groups.get(group).add(stat);
+		final long[] groupTotals = this.groupTotals.get(group);
+		for(int column = 0; column < this.totals.length; column++)
+		{
+			final int value = this.columnReader.getValue(stat, column);
+			groupTotals[column] += value;
+			this.totals[column] += value;
+		}
+	}
+	
+	/**
+	 * Removes a group if it doesn't have any stats.
+	 */
+	public void removeGroupIfEmpty(K group)
+	{
+		final var stats = this.groups.get(group);
+		if(stats == null || !stats.isEmpty()) return;
+		this.groups.remove(group);
+		this.groupTotals.remove(group);
+	}
+	// --------------------------------------------------
+	/**
+	 * Returns a read-only view of the groups, in the order they were created.
+	 */
+	public Set<K> getGroups() { return Collections.unmodifiableSet(this.groups.keySet()); }
+	
+	/**
+	 * Returns a read-only view of the stats in a given group, in the order
+	 * they were added, or an empty list if there is no such group.
+	 */
+	public List<S> getStats(K group)
+	{
+		final var stats = this.groups.get(group);
+		return (stats != null) ? Collections.unmodifiableList(stats) : Collections.emptyList();
+	}
+	
+	/**
+	 * Returns the number of groups.
+	 */
+	public int getGroupCount() { return this.groups.size(); }
+	
+	/**
+	 * Returns true if there are no groups.
+	 */
+	public boolean isEmpty() { return this.groups.isEmpty(); }
+	// --------------------------------------------------
+	/**
+	 * Returns the sum of a given column's values, for all stats in this {@link StatAggregate}.
+	 */
+	public long getTotal(int column) { return this.totals[column]; }
+	
+	/**
+	 * Returns the sum of a given column's values, for all stats in a given group,
+	 * or 0 if there is no such group.
+	 */
+	public long getGroupTotal(K group, int column)
+	{
+		final long[] groupTotals = this.groupTotals.get(group);
+		return (groupTotals != null) ? groupTotals[column] : 0;
+	}
+	// ==================================================
+	/**
+	 * Reads the value of a given column of a stat.
+	 */
+	@FunctionalInterface
+	public static interface ColumnReader<S>
+	{
+		public int getValue(S stat, int column);
+	}
+	// ==================================================
+}
\ No newline at end of file
@@ -0,0 +1,265 @@
+package io.github.thecsdev.betterstats.util;
+
+import java.util.Objects;
+
+import org.jetbrains.annotations.Nullable;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.entity.EntityType;
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+import net.minecraft.stat.Stat;
+import net.minecraft.stat.StatHandler;
+import net.minecraft.stat.Stats;
+import net.minecraft.util.Identifier;
+
+/**
+ * An immutable catalog of all {@link Item}s, {@link EntityType}s and general {@link Stat}s
+ * shown by {@link StatUtils}, alongside everything about them that does not depend
+ * on a player's {@link StatHandler}, such as their {@link Block}s, mod IDs, and the
+ * {@link Stat}s they resolve to.<br/>
+ * <br/>
+ * The catalog is built once, the first time it is accessed, which happens after the
+ * registries are frozen. This way, {@link StatUtils} can walk flat arrays instead of
+ * re-scanning and re-resolving the registries every time the statistics are gathered.<br/>
+ * <br/>
+ * Entries are referred to using their "catalog index", which is their position in the
+ * catalog. Catalog entries are ordered the same way their registries are.
+ */
+public final class StatCatalog
+{
+	// ==================================================
+	private static StatCatalog Instance;
+	// --------------------------------------------------
+	/**
+	 * The number of {@link Item}s in this {@link StatCatalog}.
+	 */
+	public final int itemCount;
+	private final Item[] items;
+	private final Block[] itemBlocks;
+	private final String[] itemModIds;
+	private final Stat<?>[][] itemStats; //[ItemStatEnum.ordinal()][catalog index]
+	private final Reference2IntOpenHashMap<Item> itemIndexes;
+	private final Reference2ObjectOpenHashMap<Block, int[]> blockItemIndexes;
+	// --------------------------------------------------
+	/**
+	 * The number of {@link EntityType}s in this {@link StatCatalog}.
+	 */
+	public final int entityCount;
+	private final EntityType<?>[] entities;
+	private final String[] entityModIds;
+	private final Stat<?>[] entityKilled, entityKilledBy;
+	private final Reference2IntOpenHashMap<EntityType<?>> entityIndexes;
+	// --------------------------------------------------
+	/**
+	 * The number of general (aka {@link Stats#CUSTOM}) {@link Stat}s in this {@link StatCatalog}.
+	 */
+	public final int customStatCount;
+	private final Stat<?>[] customStats;
+	private final Reference2IntOpenHashMap<Stat<?>> customStatIndexes;
+	// ==================================================
+	/**
+	 * Returns the {@link StatCatalog} instance, building it if it wasn't built yet.
+	 */
+	public static StatCatalog getInstance()
+	{
+		if(Instance == null) Instance = new StatCatalog();
+		return Instance;
+	}
+	// --------------------------------------------------
+	private StatCatalog()
+	{
+		//'minecraft' is the most common mod id, so
+		//share its string instance between entries
+		final String mcModId = "minecraft";
+		final var itemStatTypes = ItemStatEnum.values();
+		
+		// ---------- items
+		this.itemCount = Registries.ITEM.size();
+		this.items = new Item[itemCount];
+		this.itemBlocks = new Block[itemCount];
+		this.itemModIds = new String[itemCount];
+		this.itemStats = new Stat<?>[itemStatTypes.length][itemCount];
+		this.itemIndexes = new Reference2IntOpenHashMap<>(itemCount);
+		this.itemIndexes.defaultReturnValue(-1);
+		
+		int index = 0;
+		for(Item item : Registries.ITEM)
+		{
+			//obtain the item's block (air if it doesn't have one)
+			Block block = Block.getBlockFromItem(item);
+			boolean hasBlock = (block != null && !block.getDefaultState().isAir());
+			//obtain the item's mod id
+			String modId = Registries.ITEM.getId(item).getNamespace();
+			if(mcModId.equals(modId)) modId = mcModId;
+			
+			//put the item in the catalog
+			this.items[index] = item;
+			this.itemBlocks[index] = block;
+			this.itemModIds[index] = modId;
+			this.itemIndexes.put(item, index);
+			
+			//resolve the item's stats
+			for(ItemStatEnum ise : itemStatTypes)
+			{
+				Stat<?> stat = null;
+				switch(ise)
+				{
+					case MINED: if(hasBlock) stat = Stats.MINED.getOrCreateStat(block); break;
+					case CRAFTED: stat = Stats.CRAFTED.getOrCreateStat(item); break;
+					case PICKED_UP: stat = Stats.PICKED_UP.getOrCreateStat(item); break;
+					case DROPPED: stat = Stats.DROPPED.getOrCreateStat(item); break;
+					case USED: stat = Stats.USED.getOrCreateStat(item); break;
+					case BROKEN: stat = Stats.BROKEN.getOrCreateStat(item); break;
+				}
+				this.itemStats[ise.ordinal()][index] = stat;
+			}
+			index++;
+		}
+		
+		//map blocks to the items they belong to (more than one item can use the same block)
+		this.blockItemIndexes = new Reference2ObjectOpenHashMap<>();
+		for(int i = 0; i < itemCount; i++)
+		{
+			if(this.itemStats[ItemStatEnum.MINED.ordinal()][i] == null) continue;
+			int[] indexes = this.blockItemIndexes.get(this.itemBlocks[i]);
+			indexes = (indexes == null) ? new int[] { i } : IntArrays.ensureCapacity(indexes, indexes.length + 1);
+			indexes[indexes.length - 1] = i;
+			this.blockItemIndexes.put(this.itemBlocks[i], indexes);
+		}
+		
+		// ---------- entities
+		//count the entities first, as not all of them are included
+		int entityCount = 0;
+		for(EntityType<?> entityType : Registries.ENTITY_TYPE)
+			if(isCatalogEntity(entityType)) entityCount++;
+		
+		this.entityCount = entityCount;
+		this.entities = new EntityType<?>[entityCount];
+		this.entityModIds = new String[entityCount];
+		this.entityKilled = new Stat<?>[entityCount];
+		this.entityKilledBy = new Stat<?>[entityCount];
+		this.entityIndexes = new Reference2IntOpenHashMap<>(entityCount);
+		this.entityIndexes.defaultReturnValue(-1);
+		
+		index = 0;
+		for(EntityType<?> entityType : Registries.ENTITY_TYPE)
+		{
+			if(!isCatalogEntity(entityType)) continue;
+			//obtain the entity's mod id
+			String modId = EntityType.getId(entityType).getNamespace();
+			if(mcModId.equals(modId)) modId = mcModId;
+			
+			//put the entity in the catalog
+			this.entities[index] = entityType;
+			this.entityModIds[index] = modId;
+			this.entityKilled[index] = Stats.KILLED.getOrCreateStat(entityType);
+			this.entityKilledBy[index] = Stats.KILLED_BY.getOrCreateStat(entityType);
+			this.entityIndexes.put(entityType, index);
+			index++;
+		}
+		
+		// ---------- general stats
+		this.customStats = new ObjectArrayList<Stat<Identifier>>(Stats.CUSTOM.iterator()).toArray(new Stat<?>[0]);
+		this.customStatCount = this.customStats.length;
+		this.customStatIndexes = new Reference2IntOpenHashMap<>(customStatCount);
+		this.customStatIndexes.defaultReturnValue(-1);
+		for(int i = 0; i < customStatCount; i++)
+			this.customStatIndexes.put(this.customStats[i], i);
+	}
+	// --------------------------------------------------
+	/**
+	 * The (system) filter for {@link EntityType}s. Only players and
+	 * summonable entities are included in the {@link StatCatalog}.
+	 */
+	private static boolean isCatalogEntity(EntityType<?> entityType)
+	{
+		return entityType == EntityType.PLAYER ||
+				entityType.isSummonable()/* && entityType.getSpawnGroup() != SpawnGroup.MISC*/;
+	}
+	// ==================================================
+	/**
+	 * Returns the catalog index of an {@link Item}, or -1 if it is not in the catalog.
+	 */
+	public int indexOfItem(Item item) { return this.itemIndexes.getInt(item); }
+	
+	/**
+	 * Returns the catalog indexes of all {@link Item}s whose {@link Block} is the given
+	 * {@link Block}, aka the {@link Item}s the {@link Stats#MINED} stat of the given
+	 * {@link Block} belongs to. The returned array must not be modified.
+	 */
+	public int[] indexesOfBlock(Block block)
+	{
+		var indexes = this.blockItemIndexes.get(block);
+		return (indexes != null) ? indexes : IntArrays.EMPTY_ARRAY;
+	}
+	
+	/**
+	 * Returns the {@link Item} at a given catalog index.
+	 */
+	public Item getItem(int index) { return this.items[index]; }
+	
+	/**
+	 * Returns the {@link Block} of the {@link Item} at a given catalog index.
+	 * @see Block#getBlockFromItem(Item)
+	 */
+	public Block getItemBlock(int index) { return this.itemBlocks[index]; }
+	
+	/**
+	 * Returns the ID of the mod the {@link Item} at a given catalog index belongs to.<br/>
+	 * This is also the key used for grouping items by mods.
+	 */
+	public String getItemModId(int index) { return this.itemModIds[index]; }
+	
+	/**
+	 * Returns the {@link Stat} of a given type for the {@link Item} at a given
+	 * catalog index, or null if the {@link Item} does not have that {@link Stat}
+	 * (for example, when there is no {@link Block} to be {@link ItemStatEnum#MINED}).
+	 */
+	public @Nullable Stat<?> getItemStat(ItemStatEnum statType, int index)
+	{
+		return this.itemStats[Objects.requireNonNull(statType).ordinal()][index];
+	}
+	// --------------------------------------------------
+	/**
+	 * Returns the catalog index of an {@link EntityType}, or -1 if it is not in the catalog.
+	 */
+	public int indexOfEntity(EntityType<?> entityType) { return this.entityIndexes.getInt(entityType); }
+	
+	/**
+	 * Returns the {@link EntityType} at a given catalog index.
+	 */
+	public EntityType<?> getEntity(int index) { return this.entities[index]; }
+	
+	/**
+	 * Returns the ID of the mod the {@link EntityType} at a given catalog index belongs to.<br/>
+	 * This is also the key used for grouping mobs by mods.
+	 */
+	public String getEntityModId(int index) { return this.entityModIds[index]; }
+	
+	/**
+	 * Returns the {@link Stats#KILLED} {@link Stat} for the {@link EntityType} at a given catalog index.
+	 */
+	public Stat<?> getEntityKilledStat(int index) { return this.entityKilled[index]; }
+	
+	/**
+	 * Returns the {@link Stats#KILLED_BY} {@link Stat} for the {@link EntityType} at a given catalog index.
+	 */
+	public Stat<?> getEntityKilledByStat(int index) { return this.entityKilledBy[index]; }
+	// --------------------------------------------------
+	/**
+	 * Returns the catalog index of a general {@link Stat}, or -1 if it is not in the catalog.
+	 */
+	public int indexOfCustomStat(Stat<?> stat) { return this.customStatIndexes.getInt(stat); }
+	
+	/**
+	 * Returns the general {@link Stat} at a given catalog index.
+	 */
+	@SuppressWarnings("unchecked")
+	public Stat<Identifier> getCustomStat(int index) { return (Stat<Identifier>)this.customStats[index]; }
+	// ==================================================
+}
\ No newline at end of file
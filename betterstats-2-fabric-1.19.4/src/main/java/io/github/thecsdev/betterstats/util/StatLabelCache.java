@@ -0,0 +1,124 @@
+package io.github.thecsdev.betterstats.util;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsStat;
+import io.github.thecsdev.tcdcommons.api.util.TextUtils;
+import net.minecraft.text.Text;
+import net.minecraft.util.Language;
+
+/**
+ * A cache of the labels used by {@link StatUtilsStat}s, keyed by translation keys.<br/>
+ * <br/>
+ * Each entry holds the translated {@link Text} label, the {@link String} it resolves
+ * to, and the normalized search key used when searching for stats. Entries are
+ * created lazily, the first time a translation key is requested.<br/>
+ * <br/>
+ * The cache belongs to the current {@link Language} instance. A new {@link Language}
+ * instance is created whenever the language is changed or the resources are reloaded,
+ * in which case the cache is cleared the next time it is accessed.<br/>
+ * <br/>
+ * The cache is thread-safe.
+ */
+public final class StatLabelCache
+{
+	// ==================================================
+	private StatLabelCache() {}
+	// --------------------------------------------------
+	//concurrent, as stats may be gathered using more than one thread
+	private static final ConcurrentHashMap<String, StatLabel> CACHE = new ConcurrentHashMap<>();
+	
+	/**
+	 * The {@link Language} instance the {@link #CACHE} entries were resolved with.
+	 */
+	private static volatile Language CACHE_LANGUAGE = null;
+	// ==================================================
+	/**
+	 * Returns the cached {@link StatLabel} for a given translation key,
+	 * resolving and caching it if it wasn't cached yet.
+	 * @param translationKey The translation key of the label.
+	 */
+	public static StatLabel get(String translationKey)
+	{
+		Objects.requireNonNull(translationKey, "translationKey must not be null.");
+		
+		//clear the cache if the language changed
+		final var language = Language.getInstance();
+		if(language != CACHE_LANGUAGE)
+			synchronized(CACHE)
+			{
+				if(language != CACHE_LANGUAGE)
+				{
+					CACHE.clear();
+					CACHE_LANGUAGE = language;
+				}
+			}
+		
+		//obtain the label, and create it if needed
+		return CACHE.computeIfAbsent(translationKey, key -> new StatLabel(TextUtils.fTranslatable(key)));
+	}
+	// --------------------------------------------------
+	/**
+	 * Normalizes a {@link String} for use in stat searches, by converting it to lower
+	 * case and removing all of its whitespace characters.<br/>
+	 * Same as {@code text.toLowerCase().replaceAll("\\s+","")}, without the regex.
+	 */
+	public static String toSearchKey(String text)
+	{
+		text = text.toLowerCase();
+		final int length = text.length();
+		
+		//find the first whitespace, and return the string as-is if there aren't any
+		int i = 0;
+		while(i < length && !isSearchWhitespace(text.charAt(i))) i++;
+		if(i == length) return text;
+		
+		//copy all the non-whitespace characters
+		final var sb = new StringBuilder(length - 1);
+		sb.append(text, 0, i);
+		for(; i < length; i++)
+		{
+			char c = text.charAt(i);
+			if(!isSearchWhitespace(c)) sb.append(c);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Returns true if a char matches the {@code \s} regex character class.
+	 */
+	private static boolean isSearchWhitespace(char c)
+	{
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+	// ==================================================
+	/**
+	 * A resolved and normalized stat label.
+	 */
+	public static final class StatLabel
+	{
+		/**
+		 * The label {@link Text}.
+		 */
+		public final Text text;
+		
+		/**
+		 * The {@link String} the {@link #text} resolves to.
+		 */
+		public final String string;
+		
+		/**
+		 * The {@link #string}, normalized using {@link StatLabelCache#toSearchKey(String)}.
+		 */
+		public final String searchKey;
+		
+		public StatLabel(Text text)
+		{
+			this.text = Objects.requireNonNull(text, "text must not be null.");
+			this.string = text.getString();
+			this.searchKey = toSearchKey(this.string);
+		}
+	}
+	// ==================================================
+}
\ No newline at end of file
@@ -0,0 +1,343 @@
+package io.github.thecsdev.betterstats.util;
+
+import java.util.BitSet;
+import java.util.Objects;
+
+import org.jetbrains.annotations.Nullable;
+
+import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsGeneralStat;
+import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsItemStat;
+import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsMobStat;
+import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsStat;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import net.minecraft.entity.EntityType;
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+import net.minecraft.stat.Stat;
+import net.minecraft.util.Language;
+
+/**
+ * A trigram search index over the {@link StatCatalog}'s entries, used to
+ * quickly find the stats that match a given search term.<br/>
+ * <br/>
+ * Every {@link Item}, {@link EntityType} and general {@link Stat} in the {@link StatCatalog}
+ * is a "document" in the index, and its searchable text is made out of its normalized
+ * label, its registry ID, and the name of the mod it belongs to. Every 3 consecutive
+ * characters of that text are put in the index, so that substring searches only have to
+ * check the documents that contain all of the search term's trigrams.<br/>
+ * <br/>
+ * Because the labels depend on the current {@link Language}, the index is re-built
+ * whenever the {@link Language} instance changes.
+ * @see #search(String)
+ */
+public final class StatSearchIndex
+{
+	// ==================================================
+	private static StatSearchIndex Instance;
+	// --------------------------------------------------
+	/**
+	 * Separates the fields of a document's searchable text. Search keys never
+	 * contain this char, meaning matches can never span across two fields.
+	 */
+	private static final char FIELD_SEPARATOR = '\0';
+	private static final int[] NO_DOCUMENTS = new int[0];
+	// --------------------------------------------------
+	private final StatCatalog catalog;
+	private final Language language;
+	// --------------------------------------------------
+	private final int documentCount, entityOffset, customStatOffset;
+	private final String[] labelKeys; //[document id]
+	private final String[] texts; //[document id]
+	private final Long2ObjectOpenHashMap<int[]> trigrams;
+	// ==================================================
+	/**
+	 * Returns the {@link StatSearchIndex} instance, building it if it wasn't built
+	 * yet, or re-building it if the {@link Language} has changed since it was built.
+	 */
+	public static StatSearchIndex getInstance()
+	{
+		final var catalog = StatCatalog.getInstance();
+		if(Instance == null || Instance.language != Language.getInstance() || Instance.catalog != catalog)
+			Instance = new StatSearchIndex(catalog);
+		return Instance;
+	}
+	// --------------------------------------------------
+	private StatSearchIndex(StatCatalog catalog)
+	{
+		this.catalog = Objects.requireNonNull(catalog);
+		this.language = Language.getInstance();
+		this.entityOffset = catalog.itemCount;
+		this.customStatOffset = this.entityOffset + catalog.entityCount;
+		this.documentCount = this.customStatOffset + catalog.customStatCount;
+		this.labelKeys = new String[documentCount];
+		this.texts = new String[documentCount];
+		
+		//create the documents
+		final var modNames = new Object2ObjectOpenHashMap<String, String>();
+		for(int i = 0; i < catalog.itemCount; i++)
+		{
+			final var item = catalog.getItem(i);
+			initDocument(i, item.getTranslationKey(), Registries.ITEM.getId(item).toString(),
+					modNames.computeIfAbsent(catalog.getItemModId(i), StatSearchIndex::getModSearchKey));
+		}
+		for(int i = 0; i < catalog.entityCount; i++)
+		{
+			final var entityType = catalog.getEntity(i);
+			initDocument(entityOffset + i, entityType.getTranslationKey(), EntityType.getId(entityType).toString(),
+					modNames.computeIfAbsent(catalog.getEntityModId(i), StatSearchIndex::getModSearchKey));
+		}
+		for(int i = 0; i < catalog.customStatCount; i++)
+		{
+			final var stat = catalog.getCustomStat(i);
+			initDocument(customStatOffset + i, StatUtils.getStatTranslationKey(stat), stat.getValue().toString(),
+					modNames.computeIfAbsent(stat.getValue().getNamespace(), StatSearchIndex::getModSearchKey));
+		}
+		
+		//index the trigrams of all documents. documents are visited in order,
+		//so the posting lists end up sorted, and a document is only added to a
+		//posting list if it isn't already the last document in that list
+		final var postings = new Long2ObjectOpenHashMap<IntArrayList>();
+		for(int doc = 0; doc < documentCount; doc++)
+		{
+			final String text = this.texts[doc];
+			for(int j = 0; j + 3 <= text.length(); j++)
+			{
+				final long trigram = getTrigram(text, j);
+				if(trigram < 0) continue;
+				var posting = postings.get(trigram);
+				if(posting == null) postings.put(trigram, posting = new IntArrayList(4));
+				if(posting.isEmpty() || posting.getInt(posting.size() - 1) != doc)
+					posting.add(doc);
+			}
+		}
+		
+		//compact the posting lists into arrays
+		this.trigrams = new Long2ObjectOpenHashMap<>(postings.size());
+		for(var entry : postings.long2ObjectEntrySet())
+			this.trigrams.put(entry.getLongKey(), entry.getValue().toIntArray());
+	}
+	
+	private void initDocument(int doc, String translationKey, String registryId, String modKey)
+	{
+		final String labelKey = StatLabelCache.get(translationKey).searchKey;
+		this.labelKeys[doc] = labelKey;
+		this.texts[doc] = labelKey + FIELD_SEPARATOR +
+				StatLabelCache.toSearchKey(registryId) + FIELD_SEPARATOR + modKey;
+	}
+	
+	private static String getModSearchKey(String modId) { return StatLabelCache.toSearchKey(StatUtils.getModName(modId)); }
+	
+	/**
+	 * Packs the 3 chars starting at a given index into a single long,
+	 * or returns -1 if any of them is a {@link #FIELD_SEPARATOR}.
+	 */
+	private static long getTrigram(String text, int index)
+	{
+		final char c0 = text.charAt(index), c1 = text.charAt(index + 1), c2 = text.charAt(index + 2);
+		if(c0 == FIELD_SEPARATOR || c1 == FIELD_SEPARATOR || c2 == FIELD_SEPARATOR)
+			return -1;
+		return ((long)c0 << 32) | ((long)c1 << 16) | c2;
+	}
+	// ==================================================
+	/**
+	 * Returns the {@link StatCatalog} this {@link StatSearchIndex} was built for.
+	 */
+	public StatCatalog getCatalog() { return this.catalog; }
+	
+	/**
+	 * Searches for all documents whose label, registry ID or mod name contain
+	 * a given search term. The search term is normalized the same way the
+	 * labels are, using {@link StatLabelCache#toSearchKey(String)}.
+	 * @param searchTerm The search term.
+	 */
+	public SearchResult search(String searchTerm)
+	{
+		final String query = StatLabelCache.toSearchKey(Objects.requireNonNull(searchTerm));
+		final var matches = new BitSet(this.documentCount);
+		
+		//an empty search term matches everything
+		if(query.isEmpty()) matches.set(0, this.documentCount);
+		
+		//search terms shorter than a trigram can't use the index
+		else if(query.length() < 3)
+		{
+			for(int doc = 0; doc < this.documentCount; doc++)
+				if(this.texts[doc].contains(query)) matches.set(doc);
+		}
+		
+		//for everything else, find the search term trigram with the fewest documents,
+		//and check only those documents, as no other document can be a match
+		else
+		{
+			int[] candidates = null;
+			for(int j = 0; j + 3 <= query.length(); j++)
+			{
+				final int[] posting = this.trigrams.getOrDefault(getTrigram(query, j), NO_DOCUMENTS);
+				if(candidates == null || posting.length < candidates.length)
+					candidates = posting;
+				if(candidates.length == 0) break;
+			}
+			for(int doc : candidates)
+				if(this.texts[doc].contains(query)) matches.set(doc);
+		}
+		
+		//return the result
+		return new SearchResult(this, searchTerm, query, matches);
+	}
+	
+	/**
+	 * Same as {@link #search(String)}, but re-uses a previous {@link SearchResult} when possible.<br/>
+	 * <br/>
+	 * When the new search term contains the previous one (for example, when more characters
+	 * are typed), every new match is also a previous match, so only the previous matches are
+	 * checked, and the ones that no longer match are removed from the previous result's set
+	 * in place. In that case, the previous {@link SearchResult} must no longer be used.<br/>
+	 * On deletions or unrelated edits, a full {@link #search(String)} is done instead.
+	 * @param previous The previous {@link SearchResult}, or null if there isn't one.
+	 * @param searchTerm The new search term.
+	 */
+	public SearchResult refine(@Nullable SearchResult previous, String searchTerm)
+	{
+		//a previous result can only be re-used if it came from this index,
+		//and if the new search term extends the previous search term
+		final String query = StatLabelCache.toSearchKey(Objects.requireNonNull(searchTerm));
+		if(previous == null || previous.index != this || previous.query.isEmpty() || !query.contains(previous.query))
+			return search(searchTerm);
+		
+		//narrow the previous matches down
+		final var matches = previous.matches;
+		if(!query.equals(previous.query))
+			for(int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1))
+				if(!this.texts[doc].contains(query)) matches.clear(doc);
+		return new SearchResult(this, searchTerm, query, matches);
+	}
+	// ==================================================
+	/**
+	 * The result of a {@link StatSearchIndex#search(String)}.<br/>
+	 * Tells which stats match the search term, and ranks them,
+	 * so that exact and prefix label matches can come first.
+	 */
+	public static final class SearchResult
+	{
+		// ----------------------------------------------
+		/**
+		 * The label matches the search term exactly.
+		 */
+		public static final int RANK_EXACT = 0;
+		
+		/**
+		 * The label starts with the search term.
+		 */
+		public static final int RANK_PREFIX = 1;
+		
+		/**
+		 * The label contains the search term.
+		 */
+		public static final int RANK_LABEL = 2;
+		
+		/**
+		 * The registry ID or mod name contains the search term.
+		 */
+		public static final int RANK_OTHER = 3;
+		
+		/**
+		 * Not a match.
+		 */
+		public static final int RANK_NONE = Integer.MAX_VALUE;
+		// ----------------------------------------------
+		private final StatSearchIndex index;
+		private final String searchTerm, query;
+		private final BitSet matches;
+		// ----------------------------------------------
+		private SearchResult(StatSearchIndex index, String searchTerm, String query, BitSet matches)
+		{
+			this.index = index;
+			this.searchTerm = searchTerm;
+			this.query = query;
+			this.matches = matches;
+		}
+		// ----------------------------------------------
+		/**
+		 * Returns the {@link StatSearchIndex} this {@link SearchResult} came from.
+		 */
+		public StatSearchIndex getIndex() { return this.index; }
+		
+		/**
+		 * Returns the search term, as it was passed to {@link StatSearchIndex#search(String)}.
+		 */
+		public String getSearchTerm() { return this.searchTerm; }
+		
+		/**
+		 * Returns the normalized search term.
+		 */
+		public String getQuery() { return this.query; }
+		
+		/**
+		 * Returns the number of matching documents.
+		 */
+		public int getMatchCount() { return this.matches.cardinality(); }
+		
+		public boolean matchesItem(int catalogIndex) { return this.matches.get(catalogIndex); }
+		public boolean matchesEntity(int catalogIndex) { return this.matches.get(this.index.entityOffset + catalogIndex); }
+		public boolean matchesCustomStat(int catalogIndex) { return this.matches.get(this.index.customStatOffset + catalogIndex); }
+		
+		/**
+		 * Returns true if a given {@link StatUtilsStat} matches the search term.<br/>
+		 * Stats that are not in the {@link StatCatalog} are matched by their labels.
+		 */
+		public boolean matches(StatUtilsStat stat)
+		{
+			final int doc = getDocument(stat);
+			if(doc < 0) return stat.getSearchKey().contains(this.query);
+			return this.matches.get(doc);
+		}
+		
+		/**
+		 * Returns the rank of a given {@link StatUtilsStat}, where lower is better.
+		 * @see #RANK_EXACT
+		 * @see #RANK_PREFIX
+		 * @see #RANK_LABEL
+		 * @see #RANK_OTHER
+		 * @see #RANK_NONE
+		 */
+		public int getRank(StatUtilsStat stat)
+		{
+			if(!matches(stat)) return RANK_NONE;
+			final int doc = getDocument(stat);
+			final String labelKey = (doc < 0) ? stat.getSearchKey() : this.index.labelKeys[doc];
+			if(labelKey.equals(this.query)) return RANK_EXACT;
+			else if(labelKey.startsWith(this.query)) return RANK_PREFIX;
+			else if(labelKey.contains(this.query)) return RANK_LABEL;
+			else return RANK_OTHER;
+		}
+		// ----------------------------------------------
+		/**
+		 * Returns the document id of a given {@link StatUtilsStat}, or -1 if it isn't in the index.
+		 */
+		private int getDocument(StatUtilsStat stat)
+		{
+			final var catalog = this.index.catalog;
+			if(stat instanceof StatUtilsItemStat)
+			{
+				final var itemStat = (StatUtilsItemStat)stat;
+				return (itemStat.catalogIndex >= 0) ? itemStat.catalogIndex : catalog.indexOfItem(itemStat.item);
+			}
+			else if(stat instanceof StatUtilsMobStat)
+			{
+				final var mobStat = (StatUtilsMobStat)stat;
+				final int i = (mobStat.catalogIndex >= 0) ? mobStat.catalogIndex : catalog.indexOfEntity(mobStat.entityType);
+				return (i < 0) ? -1 : this.index.entityOffset + i;
+			}
+			else if(stat instanceof StatUtilsGeneralStat)
+			{
+				final int i = catalog.indexOfCustomStat(((StatUtilsGeneralStat)stat).stat);
+				return (i < 0) ? -1 : this.index.customStatOffset + i;
+			}
+			return -1;
+		}
+		// ----------------------------------------------
+	}
+	// ==================================================
+}
\ No newline at end of file
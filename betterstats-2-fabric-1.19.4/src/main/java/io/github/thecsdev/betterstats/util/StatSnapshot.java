@@ -0,0 +1,221 @@
+package io.github.thecsdev.betterstats.util;
+
+import java.util.BitSet;
+import java.util.Objects;
+
+import org.jetbrains.annotations.Nullable;
+
+import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsItemStat;
+import io.github.thecsdev.betterstats.util.StatUtils.StatUtilsMobStat;
+import io.github.thecsdev.tcdcommons.api.hooks.TCommonHooks;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
+import net.minecraft.block.Block;
+import net.minecraft.entity.EntityType;
+import net.minecraft.item.Item;
+import net.minecraft.stat.Stat;
+import net.minecraft.stat.StatHandler;
+import net.minecraft.stat.StatType;
+import net.minecraft.stat.Stats;
+
+/**
+ * A columnar snapshot of the {@link Item} and {@link EntityType} statistics
+ * stored in a {@link StatHandler}, laid out using the {@link StatCatalog}.<br/>
+ * <br/>
+ * Each {@link ItemStatEnum} has its own {@code int[]} column, and so do the mob
+ * kills and deaths, all of them indexed by catalog index. Alongside those columns
+ * are bit sets that tell which entries have at least one non-zero value.<br/>
+ * <br/>
+ * {@link StatUtilsItemStat}s and {@link StatUtilsMobStat}s obtained from a
+ * {@link StatSnapshot} are created lazily and cached, meaning that gathering the
+ * statistics over and over again (for example while typing in the search box) no
+ * longer creates a new object for every single registry entry every time.<br/>
+ * <br/>
+ * The snapshot is filled by walking the {@link StatHandler}'s non-zero entries, so
+ * taking it costs as much as the amount of stats the player has, and the non-empty
+ * entries can be walked directly using {@link #nextNonEmptyItem(int)} and
+ * {@link #nextNonEmptyEntity(int)}.<br/>
+ * <br/>
+ * A {@link StatSnapshot} does not change when its {@link StatHandler} does.
+ * Create a new one whenever the {@link StatHandler}'s stats are updated.
+ */
+public final class StatSnapshot
+{
+	// ==================================================
+	private final StatHandler statHandler;
+	private final StatCatalog catalog;
+	// --------------------------------------------------
+	private final int[][] itemColumns; //[ItemStatEnum.ordinal()][catalog index]
+	private final BitSet nonEmptyItems;
+	private final StatUtilsItemStat[] itemViews;
+	// --------------------------------------------------
+	private final int[] entityKilled, entityKilledBy;
+	private final BitSet nonEmptyEntities;
+	private final StatUtilsMobStat[] entityViews;
+	// ==================================================
+	/**
+	 * Creates a {@link StatSnapshot} of a given {@link StatHandler}'s statistics.
+	 * @param statHandler The {@link StatHandler} to take the snapshot of.
+	 */
+	public StatSnapshot(StatHandler statHandler) { this(statHandler, StatCatalog.getInstance()); }
+	
+	/**
+	 * Creates a {@link StatSnapshot} of a given {@link StatHandler}'s statistics.
+	 * @param statHandler The {@link StatHandler} to take the snapshot of.
+	 * @param catalog The {@link StatCatalog} that defines the layout of the snapshot.
+	 */
+	public StatSnapshot(StatHandler statHandler, StatCatalog catalog)
+	{
+		this.statHandler = Objects.requireNonNull(statHandler, "statHandler must not be null.");
+		this.catalog = Objects.requireNonNull(catalog, "catalog must not be null.");
+		
+		// ---------- allocate
+		this.itemColumns = new int[ItemStatEnum.values().length][catalog.itemCount];
+		this.nonEmptyItems = new BitSet(catalog.itemCount);
+		this.itemViews = new StatUtilsItemStat[catalog.itemCount];
+		this.entityKilled = new int[catalog.entityCount];
+		this.entityKilledBy = new int[catalog.entityCount];
+		this.nonEmptyEntities = new BitSet(catalog.entityCount);
+		this.entityViews = new StatUtilsMobStat[catalog.entityCount];
+		
+		// ---------- fill
+		//the stat map only holds the stats the player actually has, so walking it
+		//costs as much as the amount of stats the player has, and not as much as
+		//the amount of registry entries there are
+		for(var entry : Object2IntMaps.fastIterable(TCommonHooks.getStatHandlerStatMap(statHandler)))
+		{
+			//ignore empty stats, as the columns are filled with zeroes already
+			final int value = entry.getIntValue();
+			if(value == 0) continue;
+			
+			//put the stat's value in its column
+			final Stat<?> stat = entry.getKey();
+			final StatType<?> type = stat.getType();
+			if(type == Stats.MINED)
+			{
+				//more than one item can share the same block
+				for(int index : catalog.indexesOfBlock((Block)stat.getValue()))
+					putItemValue(ItemStatEnum.MINED, index, value);
+			}
+			else if(type == Stats.KILLED || type == Stats.KILLED_BY)
+			{
+				final int index = catalog.indexOfEntity((EntityType<?>)stat.getValue());
+				if(index < 0) continue;
+				if(type == Stats.KILLED) this.entityKilled[index] = value;
+				else this.entityKilledBy[index] = value;
+				this.nonEmptyEntities.set(index);
+			}
+			else
+			{
+				final ItemStatEnum statType = getItemStatType(type);
+				if(statType != null)
+					putItemValue(statType, catalog.indexOfItem((Item)stat.getValue()), value);
+			}
+		}
+	}
+	// --------------------------------------------------
+	private void putItemValue(ItemStatEnum statType, int index, int value)
+	{
+		if(index < 0) return;
+		this.itemColumns[statType.ordinal()][index] = value;
+		this.nonEmptyItems.set(index);
+	}
+	
+	/**
+	 * Returns the {@link ItemStatEnum} for a given {@link Item} {@link StatType}, or null if the
+	 * {@link StatType} is not one of them. {@link Stats#MINED} is not included, as it is a {@link Block} stat.
+	 */
+	private static @Nullable ItemStatEnum getItemStatType(StatType<?> type)
+	{
+		if(type == Stats.CRAFTED) return ItemStatEnum.CRAFTED;
+		else if(type == Stats.PICKED_UP) return ItemStatEnum.PICKED_UP;
+		else if(type == Stats.DROPPED) return ItemStatEnum.DROPPED;
+		else if(type == Stats.USED) return ItemStatEnum.USED;
+		else if(type == Stats.BROKEN) return ItemStatEnum.BROKEN;
+		else return null;
+	}
+	// ==================================================
+	/**
+	 * Returns the {@link StatHandler} this {@link StatSnapshot} was taken of.
+	 */
+	public StatHandler getStatHandler() { return this.statHandler; }
+	
+	/**
+	 * Returns the {@link StatCatalog} that defines the layout of this {@link StatSnapshot}.
+	 */
+	public StatCatalog getCatalog() { return this.catalog; }
+	// ==================================================
+	/**
+	 * Returns the value of a given {@link ItemStatEnum} stat for
+	 * the {@link Item} at a given catalog index.
+	 */
+	public int getItemValue(ItemStatEnum statType, int index) { return this.itemColumns[statType.ordinal()][index]; }
+	
+	/**
+	 * Returns true if all of the stats of the {@link Item} at a given catalog index are 0.
+	 */
+	public boolean isItemEmpty(int index) { return !this.nonEmptyItems.get(index); }
+	
+	/**
+	 * Returns the catalog index of the next {@link Item} that has at least one non-zero
+	 * stat, starting from (and including) a given catalog index, or -1 if there are none.
+	 * @see BitSet#nextSetBit(int)
+	 */
+	public int nextNonEmptyItem(int fromIndex) { return this.nonEmptyItems.nextSetBit(fromIndex); }
+	
+	/**
+	 * Returns the number of {@link Item}s that have at least one non-zero stat.
+	 */
+	public int getNonEmptyItemCount() { return this.nonEmptyItems.cardinality(); }
+	
+	/**
+	 * Returns the {@link StatUtilsItemStat} for the {@link Item} at a given catalog index.<br/>
+	 * The {@link StatUtilsItemStat} is created the first time it is requested,
+	 * and the same instance is returned every time after that.
+	 */
+	public StatUtilsItemStat getItemStat(int index)
+	{
+		var stat = this.itemViews[index];
+		if(stat == null) stat = this.itemViews[index] = new StatUtilsItemStat(this, index);
+		return stat;
+	}
+	// --------------------------------------------------
+	/**
+	 * Returns the number of times the {@link EntityType} at a given catalog index was killed.
+	 */
+	public int getEntityKilled(int index) { return this.entityKilled[index]; }
+	
+	/**
+	 * Returns the number of times the {@link EntityType} at a given catalog index killed the player.
+	 */
+	public int getEntityKilledBy(int index) { return this.entityKilledBy[index]; }
+	
+	/**
+	 * Returns true if both stats of the {@link EntityType} at a given catalog index are 0.
+	 */
+	public boolean isEntityEmpty(int index) { return !this.nonEmptyEntities.get(index); }
+	
+	/**
+	 * Returns the catalog index of the next {@link EntityType} that has at least one non-zero
+	 * stat, starting from (and including) a given catalog index, or -1 if there are none.
+	 * @see BitSet#nextSetBit(int)
+	 */
+	public int nextNonEmptyEntity(int fromIndex) { return this.nonEmptyEntities.nextSetBit(fromIndex); }
+	
+	/**
+	 * Returns the number of {@link EntityType}s that have at least one non-zero stat.
+	 */
+	public int getNonEmptyEntityCount() { return this.nonEmptyEntities.cardinality(); }
+	
+	/**
+	 * Returns the {@link StatUtilsMobStat} for the {@link EntityType} at a given catalog index.<br/>
+	 * The {@link StatUtilsMobStat} is created the first time it is requested,
+	 * and the same instance is returned every time after that.
+	 */
+	public StatUtilsMobStat getMobStat(int index)
+	{
+		var stat = this.entityViews[index];
+		if(stat == null) stat = this.entityViews[index] = new StatUtilsMobStat(this, index);
+		return stat;
+	}
+	// ==================================================
+}
\ No newline at end of file
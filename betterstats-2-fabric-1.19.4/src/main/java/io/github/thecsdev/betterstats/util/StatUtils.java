@@ -1,37 +1,47 @@
 package io.github.thecsdev.betterstats.util;
 
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.LinkedHashMap;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.StringUtils;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 
-import io.github.thecsdev.betterstats.BetterStats;
+import io.github.thecsdev.betterstats.util.StatLabelCache.StatLabel;
 import io.github.thecsdev.tcdcommons.api.util.TextUtils;
-import it.unimi.dsi.fastutil.objects.ObjectArrayList;
-import it.unimi.dsi.fastutil.objects.ObjectListIterator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.block.Block;
 import net.minecraft.entity.EntityType;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemGroup;
-import net.minecraft.registry.Registries;
 import net.minecraft.stat.Stat;
 import net.minecraft.stat.StatHandler;
 import net.minecraft.stat.Stats;
 import net.minecraft.text.MutableText;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
+import net.minecraft.util.Language;
 
 public final class StatUtils
 {
 	// ==================================================
 	private StatUtils() {}
+	// --------------------------------------------------
+	/**
+	 * When the {@link StatCatalog} has at least this many {@link Item}s, the
+	 * {@link Item} stats are filtered in parallel, using the common {@link ForkJoinPool}.<br/>
+	 * Set to {@link Integer#MAX_VALUE} to always filter them on the calling thread.
+	 */
+	public static int PARALLEL_THRESHOLD = 4096;
+	// --------------------------------------------------
+	//the alphabetical order of the general stats, and the language it was sorted in
+	private static int[] GENERAL_STAT_ORDER = null;
+	private static Language GENERAL_STAT_ORDER_LANGUAGE = null;
 	// ==================================================
 	/**
 	 * Returns a list of all {@link StatUtilsGeneralStat}s and their values.
@@ -44,20 +54,47 @@ public final class StatUtils
 		ArrayList<StatUtilsGeneralStat> result = Lists.newArrayList();
 		Objects.requireNonNull(statHandler, "statHandler must not be null.");
 		
-		//obtain and sort all general (aka custom) stats
-		ObjectArrayList<Stat<Identifier>> statiList = new ObjectArrayList<Stat<Identifier>>(Stats.CUSTOM.iterator());
-	    statiList.sort(Comparator.comparing(stat -> TextUtils.translatable(getStatTranslationKey(stat)).getString()));
-	    
-	    //iterate and add all general stats
-	    for (ObjectListIterator<Stat<Identifier>> statListIterator = statiList.iterator(); statListIterator.hasNext();)
-	    	result.add(new StatUtilsGeneralStat(statHandler, statListIterator.next()));
-	    
-	    //filter general stats if needed
-	    if(filter != null) result.removeIf(filter.negate());
-	    
+		//iterate and add all general (aka custom) stats, in alphabetical order
+		final var catalog = StatCatalog.getInstance();
+		for(int index : getGeneralStatOrder())
+			result.add(new StatUtilsGeneralStat(statHandler, catalog.getCustomStat(index)));
+		
+		//filter general stats if needed
+		if(filter != null) result.removeIf(filter.negate());
+		
 		//return the result list
 		return result;
 	}
+	
+	/**
+	 * Returns the {@link StatCatalog} indexes of all general stats, sorted
+	 * alphabetically by their labels in the current {@link Language}.<br/>
+	 * The order is only computed once per {@link Language} instance, so the labels
+	 * don't have to be compared every time the general stats are gathered.
+	 * The returned array must not be modified.
+	 */
+	public static synchronized int[] getGeneralStatOrder()
+	{
+		//return the cached order if the language didn't change
+		final var language = Language.getInstance();
+		if(GENERAL_STAT_ORDER != null && language == GENERAL_STAT_ORDER_LANGUAGE)
+			return GENERAL_STAT_ORDER;
+		
+		//resolve each stat's label once, and then sort the indexes by them
+		final var catalog = StatCatalog.getInstance();
+		final String[] labels = new String[catalog.customStatCount];
+		final int[] order = new int[catalog.customStatCount];
+		for(int i = 0; i < order.length; i++)
+		{
+			labels[i] = StatLabelCache.get(getStatTranslationKey(catalog.getCustomStat(i))).string;
+			order[i] = i;
+		}
+		IntArrays.mergeSort(order, (a, b) -> labels[a].compareTo(labels[b]));
+		
+		//cache and return the order
+		GENERAL_STAT_ORDER_LANGUAGE = language;
+		return GENERAL_STAT_ORDER = order;
+	}
 	// --------------------------------------------------
 	/**
 	 * Returns a list of all {@link StatUtilsItemStat}s and their values.<br/>
@@ -66,31 +103,52 @@ public final class StatUtils
 	 * @param statHandler The {@link StatHandler} that contains all the {@link Stat} data.
 	 * @param filter (optional) Make it return false to exclude an {@link StatUtilsItemStat}.
 	 */
-	public static LinkedHashMap<ItemGroup, ArrayList<StatUtilsItemStat>> getItemStats(StatHandler statHandler, Predicate<StatUtilsStat> filter)
+	public static StatAggregate<ItemGroup, StatUtilsItemStat> getItemStats(StatHandler statHandler, Predicate<StatUtilsStat> filter)
+	{
+		return getItemStats(new StatSnapshot(statHandler), filter);
+	}
+	
+	/**
+	 * Same as {@link #getItemStats(StatHandler, Predicate)}, but the
+	 * stats are read from an already existing {@link StatSnapshot}.
+	 * @param snapshot The {@link StatSnapshot} that contains all the {@link Stat} data.
+	 * @param filter (optional) Make it return false to exclude an {@link StatUtilsItemStat}.
+	 */
+	public static StatAggregate<ItemGroup, StatUtilsItemStat> getItemStats(StatSnapshot snapshot, Predicate<StatUtilsStat> filter)
+	{
+		return getItemStats(snapshot, filter, true);
+	}
+	
+	/**
+	 * Same as {@link #getItemStats(StatSnapshot, Predicate)}, but when {@code includeEmpty} is false,
+	 * only the non-empty entries of the {@link StatSnapshot} are visited, making the cost
+	 * proportional to the amount of stats the player has, and not to the registry size.
+	 * @param snapshot The {@link StatSnapshot} that contains all the {@link Stat} data.
+	 * @param filter (optional) Make it return false to exclude an {@link StatUtilsItemStat}.
+	 * @param includeEmpty Whether or not empty stats are to be passed to the filter at all.
+	 */
+	public static StatAggregate<ItemGroup, StatUtilsItemStat> getItemStats(StatSnapshot snapshot, Predicate<StatUtilsStat> filter, boolean includeEmpty)
 	{
 		//create new map
-		LinkedHashMap<ItemGroup, ArrayList<StatUtilsItemStat>> result = Maps.newLinkedHashMap();
-		result.put(null, new ArrayList<>()); //the null category goes first
+		StatAggregate<ItemGroup, StatUtilsItemStat> result = StatAggregate.ofItemStats();
+		result.addGroup(null); //the null category goes first
+		
+		//make sure the item group index is up to date before using it
+		ItemGroupIndex.ensureUpToDate();
 		
-		//iterate and group all items
-		for(Item itemReg : Registries.ITEM)
+		//iterate and group all (filtered) items
+		for(int i : filterItemStats(snapshot, filter, includeEmpty))
 		{
-			//create item stat
-			StatUtilsItemStat itemStat = new StatUtilsItemStat(statHandler, itemReg);
-			
-			//filter search
-			if(filter != null && !filter.test(itemStat)) continue;
+			//obtain item stat
+			StatUtilsItemStat itemStat = snapshot.getItemStat(i);
 			
 			//group item
-			var itemRegGroup = BetterStats.getItemGroup(itemReg);
-			if(!result.containsKey(itemRegGroup))
-				result.put(itemRegGroup, Lists.newArrayList());
-			result.get(itemRegGroup).add(itemStat);
+			var itemRegGroup = ItemGroupIndex.getItemGroup(itemStat.item);
+			result.add(itemRegGroup, itemStat);
 		}
 		
 		//check the null category in case no items got listed there
-		if(result.get(null).size() == 0)
-			result.remove(null);
+		result.removeGroupIfEmpty(null);
 		
 		//return the result
 		return result;
@@ -100,48 +158,66 @@ public final class StatUtils
 	 * Returns a list of all {@link StatUtilsMobStat}s and their values.<br/>
 	 * <br/>
 	 * <b>Note:</b><br/>
-	 * The {@link LinkedHashMap} keys are IDs of mods. To convert a mod id
+	 * The {@link StatAggregate} keys are IDs of mods. To convert a mod id
 	 * to mod name, use {@link #getModName(String)}.
 	 * @param statHandler The {@link StatHandler} that contains all the {@link Stat} data.
 	 * @param filter (optional) Make it return false to exclude an {@link StatUtilsItemStat}. 
 	 */
-	public static LinkedHashMap<String, ArrayList<StatUtilsMobStat>> getMobStats(StatHandler statHandler, Predicate<StatUtilsStat> filter)
+	public static StatAggregate<String, StatUtilsMobStat> getMobStats(StatHandler statHandler, Predicate<StatUtilsStat> filter)
+	{
+		return getMobStats(new StatSnapshot(statHandler), filter);
+	}
+	
+	/**
+	 * Same as {@link #getMobStats(StatHandler, Predicate)}, but the
+	 * stats are read from an already existing {@link StatSnapshot}.
+	 * @param snapshot The {@link StatSnapshot} that contains all the {@link Stat} data.
+	 * @param filter (optional) Make it return false to exclude an {@link StatUtilsMobStat}.
+	 */
+	public static StatAggregate<String, StatUtilsMobStat> getMobStats(StatSnapshot snapshot, Predicate<StatUtilsStat> filter)
+	{
+		return getMobStats(snapshot, filter, true);
+	}
+	
+	/**
+	 * Same as {@link #getMobStats(StatSnapshot, Predicate)}, but when {@code includeEmpty} is false,
+	 * only the non-empty entries of the {@link StatSnapshot} are visited, making the cost
+	 * proportional to the amount of stats the player has, and not to the registry size.
+	 * @param snapshot The {@link StatSnapshot} that contains all the {@link Stat} data.
+	 * @param filter (optional) Make it return false to exclude an {@link StatUtilsMobStat}.
+	 * @param includeEmpty Whether or not empty stats are to be passed to the filter at all.
+	 */
+	public static StatAggregate<String, StatUtilsMobStat> getMobStats(StatSnapshot snapshot, Predicate<StatUtilsStat> filter, boolean includeEmpty)
 	{
 		//create a new list
-		LinkedHashMap<String, ArrayList<StatUtilsMobStat>> result = Maps.newLinkedHashMap();
+		StatAggregate<String, StatUtilsMobStat> result = StatAggregate.ofMobStats();
 		
 		//'minecraft' goes first
 		String mcModId = new Identifier("air").getNamespace();
-		result.put(mcModId, Lists.newArrayList());
+		result.addGroup(mcModId);
 		
-		//iterate all entities
-		for(EntityType<?> entityType : Registries.ENTITY_TYPE)
+		//iterate all entities (the catalog only contains
+		//entities that pass the (system) filter)
+		final var catalog = snapshot.getCatalog();
+		for(int i = 0; i < catalog.entityCount; i++)
 		{
-			//(system) filter
-			if(entityType != EntityType.PLAYER &&
-					(!entityType.isSummonable()/* || entityType.getSpawnGroup() == SpawnGroup.MISC*/))
-				continue;
+			//skip straight to the next non-empty entity if empty ones aren't needed
+			if(!includeEmpty && (i = snapshot.nextNonEmptyEntity(i)) < 0) break;
 			
-			//create the mob stat
-			StatUtilsMobStat mobStat = new StatUtilsMobStat(statHandler, entityType);
+			//obtain the mob stat
+			StatUtilsMobStat mobStat = snapshot.getMobStat(i);
 			
 			//filter
 			if(filter != null && !filter.test(mobStat))
 				continue;
 			
-			//obtain entity's mod id,
-			//obtain the result list, and
-			//put the entity in the result list
-			String entityModId = EntityType.getId(entityType).getNamespace();
-			if(!result.containsKey(entityModId))
-				result.put(entityModId, Lists.newArrayList());
-			ArrayList<StatUtilsMobStat> resultList = result.get(entityModId);
-			resultList.add(mobStat);
+			//obtain the result list using the entity's mod id,
+			//and put the entity in the result list
+			result.add(catalog.getEntityModId(i), mobStat);
 		}
 		
 		//make sure 'minecraft' actually has entries
-		if(result.get(mcModId).size() == 0)
-			result.remove(mcModId);
+		result.removeGroupIfEmpty(mcModId);
 		
 		//return the result
 		return result;
@@ -152,47 +228,98 @@ public final class StatUtils
 	 * the items are grouped by mod IDs, and not by {@link ItemGroup}s.<br/>
 	 * <br/>
 	 * <b>Note:</b><br/>
-	 * The {@link LinkedHashMap} keys are IDs of mods. To convert a mod id
+	 * The {@link StatAggregate} keys are IDs of mods. To convert a mod id
 	 * to mod name, use {@link #getModName(String)}.
 	 * @param statHandler The {@link StatHandler} that contains all the {@link Stat} data.
 	 * @param filter (optional) Make it return false to exclude an {@link StatUtilsItemStat}.
 	 */
-	public static LinkedHashMap<String, ArrayList<StatUtilsItemStat>> getItemStatsByMods(StatHandler statHandler, Predicate<StatUtilsStat> filter)
+	public static StatAggregate<String, StatUtilsItemStat> getItemStatsByMods(StatHandler statHandler, Predicate<StatUtilsStat> filter)
+	{
+		return getItemStatsByMods(new StatSnapshot(statHandler), filter);
+	}
+	
+	/**
+	 * Same as {@link #getItemStatsByMods(StatHandler, Predicate)}, but the
+	 * stats are read from an already existing {@link StatSnapshot}.
+	 * @param snapshot The {@link StatSnapshot} that contains all the {@link Stat} data.
+	 * @param filter (optional) Make it return false to exclude an {@link StatUtilsItemStat}.
+	 */
+	public static StatAggregate<String, StatUtilsItemStat> getItemStatsByMods(StatSnapshot snapshot, Predicate<StatUtilsStat> filter)
+	{
+		return getItemStatsByMods(snapshot, filter, true);
+	}
+	
+	/**
+	 * Same as {@link #getItemStatsByMods(StatSnapshot, Predicate)}, but when {@code includeEmpty} is false,
+	 * only the non-empty entries of the {@link StatSnapshot} are visited, making the cost
+	 * proportional to the amount of stats the player has, and not to the registry size.
+	 * @param snapshot The {@link StatSnapshot} that contains all the {@link Stat} data.
+	 * @param filter (optional) Make it return false to exclude an {@link StatUtilsItemStat}.
+	 * @param includeEmpty Whether or not empty stats are to be passed to the filter at all.
+	 */
+	public static StatAggregate<String, StatUtilsItemStat> getItemStatsByMods(StatSnapshot snapshot, Predicate<StatUtilsStat> filter, boolean includeEmpty)
 	{
 		//create a new list
-		LinkedHashMap<String, ArrayList<StatUtilsItemStat>> result = Maps.newLinkedHashMap();
+		StatAggregate<String, StatUtilsItemStat> result = StatAggregate.ofItemStats();
 		
 		//'minecraft' goes first
 		String mcModId = new Identifier("air").getNamespace();
-		result.put(mcModId, Lists.newArrayList());
+		result.addGroup(mcModId);
 		
-		//iterate all items and add them to the map
-		for(Item itemReg : Registries.ITEM)
+		//iterate all (filtered) items and add them to the map
+		final var catalog = snapshot.getCatalog();
+		for(int i : filterItemStats(snapshot, filter, includeEmpty))
 		{
-			//create item stat
-			StatUtilsItemStat itemStat = new StatUtilsItemStat(statHandler, itemReg);
-			
-			//filter search
-			if(filter != null && !filter.test(itemStat)) continue;
+			//obtain item stat
+			StatUtilsItemStat itemStat = snapshot.getItemStat(i);
 			
-			//---------- group the item
-			//obtain mod id
-			String itemModId = Registries.ITEM.getId(itemReg).getNamespace();
-			//get/create a group array
-			if(!result.containsKey(itemModId))
-				result.put(itemModId, Lists.newArrayList());
-			ArrayList<StatUtilsItemStat> resultList = result.get(itemModId);
-			//add the stat to the array
-			resultList.add(itemStat);
+			//group the item using its mod id, and add the stat to the group
+			result.add(catalog.getItemModId(i), itemStat);
 		}
 		
 		//make sure 'minecraft' actually has entries
-		if(result.get(mcModId).size() == 0)
-			result.remove(mcModId);
+		result.removeGroupIfEmpty(mcModId);
 		
 		//return the new list
 		return result;
 	}
+	// --------------------------------------------------
+	/**
+	 * Returns the {@link StatCatalog} indexes of all {@link Item}s in a {@link StatSnapshot}
+	 * whose {@link StatUtilsItemStat}s pass a given filter, in catalog order.<br/>
+	 * <br/>
+	 * Large catalogs (see {@link #PARALLEL_THRESHOLD}) are split into chunks that are
+	 * filtered in parallel, in which case the filter must be safe to call from other threads.
+	 * @param snapshot The {@link StatSnapshot} that contains all the {@link Stat} data.
+	 * @param filter (optional) Make it return false to exclude an {@link StatUtilsItemStat}.
+	 * @param includeEmpty Whether or not empty stats are to be passed to the filter at all.
+	 */
+	public static int[] filterItemStats(StatSnapshot snapshot, Predicate<StatUtilsStat> filter, boolean includeEmpty)
+	{
+		final int itemCount = snapshot.getCatalog().itemCount;
+		
+		//large catalogs are filtered in parallel. the stream is ordered, so the
+		//results are merged back together in catalog (aka registry) order
+		if(itemCount >= PARALLEL_THRESHOLD)
+		{
+			return IntStream.range(0, itemCount).parallel()
+					.filter(i -> (includeEmpty || !snapshot.isItemEmpty(i)) &&
+							(filter == null || filter.test(snapshot.getItemStat(i))))
+					.toArray();
+		}
+		
+		//small catalogs are filtered on this thread
+		final var result = new IntArrayList();
+		for(int i = 0; i < itemCount; i++)
+		{
+			//skip straight to the next non-empty item if empty ones aren't needed
+			if(!includeEmpty && (i = snapshot.nextNonEmptyItem(i)) < 0) break;
+			//filter
+			if(filter == null || filter.test(snapshot.getItemStat(i)))
+				result.add(i);
+		}
+		return result.toIntArray();
+	}
 	// ==================================================
 	/**
 	 * Returns the translation key for a given {@link Stat}.
@@ -221,21 +348,42 @@ public final class StatUtils
 		// ------------------------------
 		public final StatHandler statHandler;
 		public final Text label;
-		private final String sqLabel;
+		private String sqLabel;
 		// ------------------------------
 		public StatUtilsStat(StatHandler statHandler, Text label)
 		{
 			this.statHandler = statHandler;
 			this.label = Objects.requireNonNull(label, "label must not be null.");
-			this.sqLabel = this.label.getString().toLowerCase().replaceAll("\\s+","");
+			this.sqLabel = null; //resolved lazily, see getSearchKey()
+		}
+		
+		/**
+		 * Creates a {@link StatUtilsStat} using a label from the {@link StatLabelCache}.
+		 */
+		public StatUtilsStat(StatHandler statHandler, StatLabel label)
+		{
+			this.statHandler = statHandler;
+			this.label = label.text;
+			this.sqLabel = label.searchKey;
 		}
 		
 		public abstract boolean isEmpty();
 		// ------------------------------
+		/**
+		 * Returns the {@link #label}, normalized for use in searches.
+		 * @see StatLabelCache#toSearchKey(String)
+		 */
+		public final String getSearchKey()
+		{
+			if(this.sqLabel == null)
+				this.sqLabel = StatLabelCache.toSearchKey(this.label.getString());
+			return this.sqLabel;
+		}
+		
 		public final boolean matchesSearchQuery(String search)
 		{
-			search = search.toLowerCase().replaceAll("\\s+","");
-			return search.startsWith(this.sqLabel);
+			search = StatLabelCache.toSearchKey(search);
+			return search.startsWith(getSearchKey());
 		}
 		// ------------------------------
 	}
@@ -250,8 +398,7 @@ public final class StatUtils
 		public StatUtilsGeneralStat(StatHandler statHandler, Stat<Identifier> generalStat)
 		{
 			super(Objects.requireNonNull(statHandler, "statHandler must not be null."),
-					TextUtils.fTranslatable(
-					getStatTranslationKey(
+					StatLabelCache.get(getStatTranslationKey(
 							Objects.requireNonNull(generalStat, "generalStat must not be null."))));
 			this.stat = generalStat;
 			this.intValue = statHandler.getStat(stat);
@@ -268,11 +415,16 @@ public final class StatUtils
 		public final Block block;
 		public final int sMined, sCrafted, sUsed, sBroken, sPickedUp, sDropped;
 		public final boolean isEmpty;
+		/**
+		 * The {@link StatCatalog} index of the {@link #item}, or -1
+		 * if this {@link StatUtilsItemStat} was not created using a {@link StatSnapshot}.
+		 */
+		public final int catalogIndex;
 		
 		public StatUtilsItemStat(StatHandler statHandler, Item item)
 		{
 			super(Objects.requireNonNull(statHandler, "statHandler must not be null."),
-					TextUtils.fTranslatable(
+					StatLabelCache.get(
 					Objects.requireNonNull(item, "item must not be null.")
 					.getTranslationKey()));
 			//define required stuff
@@ -291,8 +443,50 @@ public final class StatUtils
 			this.isEmpty = (sMined == 0 && sCrafted == 0 &&
 					sUsed == 0 && sBroken == 0 &&
 					sPickedUp == 0 && sDropped == 0);
+			this.catalogIndex = -1;
+		}
+		
+		/**
+		 * Creates a {@link StatUtilsItemStat} for the {@link Item} at a given
+		 * {@link StatCatalog} index, using the values stored in a {@link StatSnapshot}.
+		 * @see StatSnapshot#getItemStat(int)
+		 */
+		StatUtilsItemStat(StatSnapshot snapshot, int catalogIndex)
+		{
+			super(snapshot.getStatHandler(),
+					StatLabelCache.get(snapshot.getCatalog().getItem(catalogIndex).getTranslationKey()));
+			//define required stuff
+			this.item = snapshot.getCatalog().getItem(catalogIndex);
+			this.block = snapshot.getCatalog().getItemBlock(catalogIndex);
+			this.catalogIndex = catalogIndex;
+			//handle stats
+			this.sMined = snapshot.getItemValue(ItemStatEnum.MINED, catalogIndex);
+			this.sCrafted = snapshot.getItemValue(ItemStatEnum.CRAFTED, catalogIndex);
+			this.sUsed = snapshot.getItemValue(ItemStatEnum.USED, catalogIndex);
+			this.sBroken = snapshot.getItemValue(ItemStatEnum.BROKEN, catalogIndex);
+			this.sPickedUp = snapshot.getItemValue(ItemStatEnum.PICKED_UP, catalogIndex);
+			this.sDropped = snapshot.getItemValue(ItemStatEnum.DROPPED, catalogIndex);
+			//define isEmpty
+			this.isEmpty = snapshot.isItemEmpty(catalogIndex);
 		}
 		public @Override boolean isEmpty() { return this.isEmpty; }
+		
+		/**
+		 * Returns the value of a given {@link ItemStatEnum} stat.
+		 */
+		public int getValue(ItemStatEnum statType)
+		{
+			switch(statType)
+			{
+				case MINED: return this.sMined;
+				case CRAFTED: return this.sCrafted;
+				case PICKED_UP: return this.sPickedUp;
+				case DROPPED: return this.sDropped;
+				case USED: return this.sUsed;
+				case BROKEN: return this.sBroken;
+				default: return 0;
+			}
+		}
 	}
 	// --------------------------------------------------
 	public static class StatUtilsMobStat extends StatUtilsStat
@@ -300,11 +494,16 @@ public final class StatUtils
 		public final EntityType<?> entityType;
 		public final int killed, killedBy;
 		public final boolean isEmpty;
+		/**
+		 * The {@link StatCatalog} index of the {@link #entityType}, or -1
+		 * if this {@link StatUtilsMobStat} was not created using a {@link StatSnapshot}.
+		 */
+		public final int catalogIndex;
 		
 		public StatUtilsMobStat(StatHandler statHandler, EntityType<?> entityType)
 		{
 			super(Objects.requireNonNull(statHandler, "statHandler must not be null."),
-					TextUtils.fTranslatable(
+					StatLabelCache.get(
 							Objects.requireNonNull(entityType, "entityType must not be null.")
 							.getTranslationKey()));
 			//define required stuff
@@ -313,6 +512,25 @@ public final class StatUtils
 			this.killedBy = statHandler.getStat(Stats.KILLED_BY, entityType);
 			//define isEmpty
 			this.isEmpty = (killed == 0 && killedBy == 0);
+			this.catalogIndex = -1;
+		}
+		
+		/**
+		 * Creates a {@link StatUtilsMobStat} for the {@link EntityType} at a given
+		 * {@link StatCatalog} index, using the values stored in a {@link StatSnapshot}.
+		 * @see StatSnapshot#getMobStat(int)
+		 */
+		StatUtilsMobStat(StatSnapshot snapshot, int catalogIndex)
+		{
+			super(snapshot.getStatHandler(),
+					StatLabelCache.get(snapshot.getCatalog().getEntity(catalogIndex).getTranslationKey()));
+			//define required stuff
+			this.entityType = snapshot.getCatalog().getEntity(catalogIndex);
+			this.catalogIndex = catalogIndex;
+			this.killed = snapshot.getEntityKilled(catalogIndex);
+			this.killedBy = snapshot.getEntityKilledBy(catalogIndex);
+			//define isEmpty
+			this.isEmpty = snapshot.isEntityEmpty(catalogIndex);
 		}
 		public @Override boolean isEmpty() { return this.isEmpty; }
 	}